@@ -1,14 +1,50 @@
 package cmsc256;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
 /**
  * Implements an AVL tree.
  */
-public class AVLTree<T extends Comparable<? super T>> {
+public class AVLTree<T extends Comparable<? super T>> implements Iterable<T> {
     private AVLNode<T> root;
 
     public AVLTree( ){
         root = null;
     }
 
+    /**
+     * Build a perfectly balanced tree from items in ascending order in O(n).
+     * @param sorted the items, in strictly ascending order.
+     * @return the new tree.
+     * @throws IllegalArgumentException if the items are not strictly ascending.
+     */
+    public static <T extends Comparable<? super T>> AVLTree<T> fromSorted(List<? extends T> sorted) {
+        for( int i = 1; i < sorted.size(); i++ )
+            if( sorted.get( i - 1 ).compareTo( sorted.get( i ) ) >= 0 )
+                throw new IllegalArgumentException( "Items are not in strictly ascending order at index " + i );
+        AVLTree<T> tree = new AVLTree<>();
+        tree.root = tree.buildBalanced( sorted, 0, sorted.size() );
+        return tree;
+    }
+
+    /**
+     * Copy the tree node by node, so the copy has the same shape and traversals.
+     * Changing one tree does not change the other; the items themselves are shared.
+     * @return the new tree.
+     */
+    public AVLTree<T> copy( ) {
+        AVLTree<T> tree = new AVLTree<>();
+        tree.root = tree.copy( root );
+        return tree;
+    }
+
     public AVLNode<T> getRoot(){
         return root;
     }
@@ -26,7 +62,7 @@ public class AVLTree<T extends Comparable<? super T>> {
      * @param x the item to remove.
      */
     public void remove(T x) {
-        throw new UnsupportedOperationException( "remove not unimplemented" );
+        root = remove( x, root );
     }
 
     /**
@@ -54,6 +90,77 @@ public class AVLTree<T extends Comparable<? super T>> {
         return elementAt(find( x, root));
     }
 
+    /**
+     * Find the largest item less than or equal to x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public T floor(T x) {
+        AVLNode<T> t = root;
+        T best = null;
+        while( t != null ) {
+            int compare = x.compareTo( t.getElement() );
+            if( compare == 0 )
+                return t.getElement();
+            if( compare < 0 )
+                t = t.getLeft();
+            else {
+                best = t.getElement();
+                t = t.getRight();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Find the smallest item greater than or equal to x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public T ceiling(T x) {
+        AVLNode<T> t = root;
+        T best = null;
+        while( t != null ) {
+            int compare = x.compareTo( t.getElement() );
+            if( compare == 0 )
+                return t.getElement();
+            if( compare > 0 )
+                t = t.getRight();
+            else {
+                best = t.getElement();
+                t = t.getLeft();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lazily iterate in sorted order over the items from low (inclusive) to high (exclusive).
+     * The tree must not be modified while iterating.
+     * @param low the smallest item to include, or null to start at the smallest item.
+     * @param high the first item to exclude, or null to run to the largest item.
+     * @return an iterator over the range.
+     */
+    public Iterator<T> range(T low, T high) {
+        return new InorderIterator( low, high );
+    }
+
+    /**
+     * Lazily iterate in sorted order over the strings in a tree that start with a prefix.
+     * @param tree the tree to search.
+     * @param prefix the prefix to match.
+     * @return an iterator over the matching strings.
+     */
+    public static Iterator<String> withPrefix(AVLTree<String> tree, String prefix) {
+        // Every string starting with the prefix sorts before the prefix with its last char incremented
+        int end = prefix.length();
+        while( end > 0 && prefix.charAt( end - 1 ) == Character.MAX_VALUE )
+            end--;
+        String high = end == 0 ? null
+                : prefix.substring( 0, end - 1 ) + (char) (prefix.charAt( end - 1 ) + 1);
+        return tree.range( prefix, high );
+    }
+
     /**
      * Make the tree logically empty.
      */
@@ -76,7 +183,68 @@ public class AVLTree<T extends Comparable<? super T>> {
         if(isEmpty())
             System.out.println( "Empty tree" );
         else
-            printTree( root );
+            inorder( System.out::println );
+    }
+
+    /**
+     * Visit the items in sorted order.
+     * @param action the action to perform on each item.
+     */
+    public void inorder(Consumer<? super T> action) {
+        iterator().forEachRemaining(action);
+    }
+
+    /**
+     * Visit each item before the items in its subtrees.
+     * @param action the action to perform on each item.
+     */
+    public void preorder(Consumer<? super T> action) {
+        preorderIterator().forEachRemaining(action);
+    }
+
+    /**
+     * Visit each item after the items in its subtrees.
+     * @param action the action to perform on each item.
+     */
+    public void postorder(Consumer<? super T> action) {
+        postorderIterator().forEachRemaining(action);
+    }
+
+    /**
+     * Lazily iterate over the items in sorted order.
+     * The tree must not be modified while iterating.
+     * @return an inorder iterator.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new InorderIterator();
+    }
+
+    /**
+     * Lazily iterate over each item before the items in its subtrees.
+     * The tree must not be modified while iterating.
+     * @return a preorder iterator.
+     */
+    public Iterator<T> preorderIterator() {
+        return new PreorderIterator();
+    }
+
+    /**
+     * Lazily iterate over each item after the items in its subtrees.
+     * The tree must not be modified while iterating.
+     * @return a postorder iterator.
+     */
+    public Iterator<T> postorderIterator() {
+        return new PostorderIterator();
+    }
+
+    /**
+     * @return a spliterator over the items in sorted order.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
     }
 
     /**
@@ -120,6 +288,84 @@ public class AVLTree<T extends Comparable<? super T>> {
         return t;
     }
 
+    /**
+     * Internal method to remove from a subtree.
+     * @param x the item to remove.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private AVLNode<T> remove( T x, AVLNode<T> t ) {
+        if( t == null )
+            return t;   // Item not found; do nothing
+
+        int compareResult = x.compareTo( t.getElement() );
+        if( compareResult < 0 )
+            t.setLeft( remove( x, t.getLeft() ) );
+        else if( compareResult > 0 )
+            t.setRight( remove( x, t.getRight() ) );
+        else if( t.getLeft() != null && t.getRight() != null ) { // Two children
+            t.setElement( findMin( t.getRight() ).getElement() );
+            t.setRight( remove( t.getElement(), t.getRight() ) );
+        }
+        else
+            t = ( t.getLeft() != null ) ? t.getLeft() : t.getRight();
+        return balance( t );
+    }
+
+    /**
+     * Internal method to restore the AVL balance of a subtree after a removal.
+     * @param t the node that roots the subtree; its children are balanced.
+     * @return the new root of the subtree.
+     */
+    private AVLNode<T> balance( AVLNode<T> t ) {
+        if( t == null )
+            return t;
+
+        if( height( t.getLeft() ) - height( t.getRight() ) > 1 )
+            if( height( t.getLeft().getLeft() ) >= height( t.getLeft().getRight() ) )
+                t = rotateWithLeftChild( t );
+            else
+                t = doubleWithLeftChild( t );
+        else if( height( t.getRight() ) - height( t.getLeft() ) > 1 )
+            if( height( t.getRight().getRight() ) >= height( t.getRight().getLeft() ) )
+                t = rotateWithRightChild( t );
+            else
+                t = doubleWithRightChild( t );
+
+        t.setHeight( max( height( t.getLeft() ), height( t.getRight() ) ) + 1 );
+        return t;
+    }
+
+    /**
+     * Internal method to copy a subtree.
+     * @param t the node that roots the tree.
+     * @return the root of the copy.
+     */
+    private AVLNode<T> copy( AVLNode<T> t ) {
+        if( t == null )
+            return null;
+        AVLNode<T> c = new AVLNode<T>( t.getElement(), copy( t.getLeft() ), copy( t.getRight() ) );
+        c.setHeight( t.getHeight() );
+        return c;
+    }
+
+    /**
+     * Internal method to build a balanced subtree from a sorted range.
+     * @param sorted the items in ascending order.
+     * @param from index of the first item of the range.
+     * @param to index one past the last item of the range.
+     * @return the root of the subtree.
+     */
+    private AVLNode<T> buildBalanced( List<? extends T> sorted, int from, int to ) {
+        if( from >= to )
+            return null;
+        int middle = ( from + to ) >>> 1;
+        AVLNode<T> t = new AVLNode<T>( sorted.get( middle ),
+                buildBalanced( sorted, from, middle ), buildBalanced( sorted, middle + 1, to ) );
+        t.setHeight( max( height( t.getLeft() ), height( t.getRight() ) ) + 1 );
+        return t;
+    }
+
     /**
      * Internal method to find the largest item in a subtree.
      * @param t the node that roots the tree.
@@ -164,18 +410,6 @@ public class AVLTree<T extends Comparable<? super T>> {
         return null;   // No match
     }
 
-    /**
-     * Internal method to print a subtree in sorted order.
-     * @param t the node that roots the tree.
-     */
-    private void printTree( AVLNode t ) {
-        if( t != null ) {
-            printTree( t.getLeft() );
-            System.out.println( t.getElement() );
-            printTree( t.getRight() );
-        }
-    }
-
     /**
      * Return the height of node t, or -1, if null.
      */
@@ -243,6 +477,117 @@ public class AVLTree<T extends Comparable<? super T>> {
         k1.setRight(rotateWithLeftChild(k1.getRight()));
         return rotateWithRightChild( k1 );
     }
+    /**
+     * Inorder iteration with an explicit stack of the nodes whose left subtree is being visited,
+     * optionally limited to the items from low (inclusive) to high (exclusive).
+     */
+    private class InorderIterator implements Iterator<T> {
+        private final Deque<AVLNode<T>> stack = new ArrayDeque<>();
+        private final T high;
+
+        InorderIterator() {
+            this( null, null );
+        }
+
+        InorderIterator( T low, T high ) {
+            this.high = high;
+            // Push the path to the first item not below low
+            AVLNode<T> t = root;
+            while( t != null )
+                if( low != null && low.compareTo( t.getElement() ) > 0 )
+                    t = t.getRight();
+                else {
+                    stack.push( t );
+                    t = t.getLeft();
+                }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && ( high == null || high.compareTo( stack.peek().getElement() ) > 0 );
+        }
+
+        @Override
+        public T next() {
+            if( !hasNext() )
+                throw new NoSuchElementException();
+            AVLNode<T> t = stack.pop();
+            pushLeft( t.getRight() );
+            return t.getElement();
+        }
+
+        private void pushLeft( AVLNode<T> t ) {
+            for( ; t != null; t = t.getLeft() )
+                stack.push( t );
+        }
+    }
+
+    /**
+     * Preorder iteration with an explicit stack of the subtrees still to visit.
+     */
+    private class PreorderIterator implements Iterator<T> {
+        private final Deque<AVLNode<T>> stack = new ArrayDeque<>();
+
+        PreorderIterator() {
+            if( root != null )
+                stack.push( root );
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if( stack.isEmpty() )
+                throw new NoSuchElementException();
+            AVLNode<T> t = stack.pop();
+            if( t.getRight() != null )
+                stack.push( t.getRight() );
+            if( t.getLeft() != null )
+                stack.push( t.getLeft() );
+            return t.getElement();
+        }
+    }
+
+    /**
+     * Postorder iteration with an explicit stack of the path to the next node.
+     */
+    private class PostorderIterator implements Iterator<T> {
+        private final Deque<AVLNode<T>> stack = new ArrayDeque<>();
+
+        PostorderIterator() {
+            pushFirstLeaf( root );
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if( stack.isEmpty() )
+                throw new NoSuchElementException();
+            AVLNode<T> t = stack.pop();
+            // After a left child, the parent's right subtree comes next
+            if( !stack.isEmpty() && stack.peek().getLeft() == t )
+                pushFirstLeaf( stack.peek().getRight() );
+            return t.getElement();
+        }
+
+        /**
+         * Push the path to the first node of the subtree in postorder.
+         */
+        private void pushFirstLeaf( AVLNode<T> t ) {
+            while( t != null ) {
+                stack.push( t );
+                t = t.getLeft() != null ? t.getLeft() : t.getRight();
+            }
+        }
+    }
+
     public class AVLNode<T extends Comparable<? super T>> {
         private T element;
         private AVLNode<T> left;
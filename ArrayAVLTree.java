@@ -0,0 +1,618 @@
+package cmsc256;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Implements an AVL tree with the same operations as AVLTree, storing the
+ * nodes in parallel arrays instead of node objects. A node is an index: its
+ * element is in elements, its children in left and right and its height in
+ * height. Removed nodes are kept on a free list and reused by later inserts.
+ * A tree built with fromSorted is laid out in preorder in exactly sized arrays.
+ */
+public class ArrayAVLTree<T extends Comparable<? super T>> implements Iterable<T> {
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] elements;
+    private int[] left;
+    private int[] right;
+    private int[] height;
+    private int root = NIL;
+    private int size;       // nodes in the tree
+    private int used;       // slots ever handed out; slots from used on are unused
+    private int free = NIL; // first slot of the free list, chained through left
+
+    public ArrayAVLTree( ) {
+        this( INITIAL_CAPACITY );
+    }
+
+    /**
+     * @param capacity the number of nodes to allocate room for.
+     */
+    public ArrayAVLTree( int capacity ) {
+        if( capacity < 0 )
+            throw new IllegalArgumentException( "Capacity cannot be negative" );
+        elements = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        height = new int[capacity];
+    }
+
+    /**
+     * Build a perfectly balanced tree from items in ascending order in O(n).
+     * @param sorted the items, in strictly ascending order.
+     * @return the new tree.
+     * @throws IllegalArgumentException if the items are not strictly ascending.
+     */
+    public static <T extends Comparable<? super T>> ArrayAVLTree<T> fromSorted(List<? extends T> sorted) {
+        for( int i = 1; i < sorted.size(); i++ )
+            if( sorted.get( i - 1 ).compareTo( sorted.get( i ) ) >= 0 )
+                throw new IllegalArgumentException( "Items are not in strictly ascending order at index " + i );
+        ArrayAVLTree<T> tree = new ArrayAVLTree<>( sorted.size() );
+        tree.root = tree.buildBalanced( sorted, 0, sorted.size() );
+        return tree;
+    }
+
+    /**
+     * Insert into the tree; duplicates are ignored.
+     * @param x the item to insert.
+     */
+    public void insert(T x) {
+        root = insert( x, root );
+    }
+
+    /**
+     * Remove from the tree. Nothing is done if x is not found.
+     * @param x the item to remove.
+     */
+    public void remove(T x) {
+        root = remove( x, root );
+    }
+
+    /**
+     * Find the smallest item in the tree.
+     * @return smallest item or null if empty.
+     */
+    public T findMin( ) {
+        return elementAt( findMin( root ) );
+    }
+
+    /**
+     * Find the largest item in the tree.
+     * @return the largest item of null if empty.
+     */
+    public T findMax( ) {
+        return elementAt( findMax( root ) );
+    }
+
+    /**
+     * Find an item in the tree.
+     * @param x the item to search for.
+     * @return the matching item or null if not found.
+     */
+    public T find(T x) {
+        int t = root;
+        while( t != NIL ) {
+            int compare = x.compareTo( elementAt( t ) );
+            if( compare < 0 )
+                t = left[t];
+            else if( compare > 0 )
+                t = right[t];
+            else
+                return elementAt( t );    // Match
+        }
+        return null;   // No match
+    }
+
+    /**
+     * Find the largest item less than or equal to x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public T floor(T x) {
+        int t = root;
+        T best = null;
+        while( t != NIL ) {
+            int compare = x.compareTo( elementAt( t ) );
+            if( compare == 0 )
+                return elementAt( t );
+            if( compare < 0 )
+                t = left[t];
+            else {
+                best = elementAt( t );
+                t = right[t];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Find the smallest item greater than or equal to x.
+     * @param x the item to search for.
+     * @return the matching item or null if there is none.
+     */
+    public T ceiling(T x) {
+        int t = root;
+        T best = null;
+        while( t != NIL ) {
+            int compare = x.compareTo( elementAt( t ) );
+            if( compare == 0 )
+                return elementAt( t );
+            if( compare > 0 )
+                t = right[t];
+            else {
+                best = elementAt( t );
+                t = left[t];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lazily iterate in sorted order over the items from low (inclusive) to high (exclusive).
+     * The tree must not be modified while iterating.
+     * @param low the smallest item to include, or null to start at the smallest item.
+     * @param high the first item to exclude, or null to run to the largest item.
+     * @return an iterator over the range.
+     */
+    public Iterator<T> range(T low, T high) {
+        return new InorderIterator( low, high );
+    }
+
+    /**
+     * Make the tree logically empty.
+     */
+    public void makeEmpty( ) {
+        Arrays.fill( elements, 0, used, null );
+        root = NIL;
+        size = 0;
+        used = 0;
+        free = NIL;
+    }
+
+    /**
+     * Test if the tree is logically empty.
+     * @return true if empty, false otherwise.
+     */
+    public boolean isEmpty( ) {
+        return root == NIL;
+    }
+
+    /**
+     * @return the number of items in the tree.
+     */
+    public int size( ) {
+        return size;
+    }
+
+    /**
+     * Print the tree contents in sorted order.
+     */
+    public void printTree( ) {
+        if( isEmpty( ) )
+            System.out.println( "Empty tree" );
+        else
+            inorder( System.out::println );
+    }
+
+    /**
+     * Visit every item in sorted order.
+     * @param action the action to perform on each item.
+     */
+    public void inorder(Consumer<? super T> action) {
+        iterator().forEachRemaining( action );
+    }
+
+    /**
+     * Visit every item before its left and right subtrees.
+     * @param action the action to perform on each item.
+     */
+    public void preorder(Consumer<? super T> action) {
+        preorderIterator().forEachRemaining( action );
+    }
+
+    /**
+     * Visit every item after its left and right subtrees.
+     * @param action the action to perform on each item.
+     */
+    public void postorder(Consumer<? super T> action) {
+        postorderIterator().forEachRemaining( action );
+    }
+
+    /**
+     * @return a lazy iterator over the items in sorted order.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new InorderIterator( null, null );
+    }
+
+    /**
+     * Lazily iterate over each item before the items in its subtrees.
+     * The tree must not be modified while iterating.
+     * @return a preorder iterator.
+     */
+    public Iterator<T> preorderIterator() {
+        return new PreorderIterator( );
+    }
+
+    /**
+     * Lazily iterate over each item after the items in its subtrees.
+     * The tree must not be modified while iterating.
+     * @return a postorder iterator.
+     */
+    public Iterator<T> postorderIterator() {
+        return new PostorderIterator( );
+    }
+
+    /**
+     * Internal method to get the element of a node.
+     * @param t the node.
+     * @return the element or null if t is NIL.
+     */
+    @SuppressWarnings("unchecked")
+    private T elementAt( int t ) {
+        return t == NIL ? null : (T) elements[t];
+    }
+
+    /**
+     * Internal method to insert into a subtree.
+     * @param x the item to insert.
+     * @param t the node that roots the tree.
+     * @return the new root.
+     */
+    private int insert( T x, int t ) {
+        if( t == NIL )
+            return allocate( x, NIL, NIL );
+
+        int compareResult = x.compareTo( elementAt( t ) );
+        // Read the child back into a local first: allocating may replace the arrays
+        if( compareResult < 0 ) {
+            int child = insert( x, left[t] );
+            left[t] = child;
+            if( height( left[t] ) - height( right[t] ) == 2 )
+                if( x.compareTo( elementAt( left[t] ) ) < 0 )
+                    t = rotateWithLeftChild( t );
+                else
+                    t = doubleWithLeftChild( t );
+        }
+        else if( compareResult > 0 ) {
+            int child = insert( x, right[t] );
+            right[t] = child;
+            if( height( right[t] ) - height( left[t] ) == 2 )
+                if( x.compareTo( elementAt( right[t] ) ) > 0 )
+                    t = rotateWithRightChild( t );
+                else
+                    t = doubleWithRightChild( t );
+        }
+        else {
+            // Duplicate; do nothing
+        }
+        updateHeight( t );
+        return t;
+    }
+
+    /**
+     * Internal method to remove from a subtree.
+     * @param x the item to remove.
+     * @param t the node that roots the subtree.
+     * @return the new root of the subtree.
+     */
+    private int remove( T x, int t ) {
+        if( t == NIL )
+            return t;   // Item not found; do nothing
+
+        int compareResult = x.compareTo( elementAt( t ) );
+        if( compareResult < 0 )
+            left[t] = remove( x, left[t] );
+        else if( compareResult > 0 )
+            right[t] = remove( x, right[t] );
+        else if( left[t] != NIL && right[t] != NIL ) { // Two children
+            elements[t] = elements[findMin( right[t] )];
+            right[t] = remove( elementAt( t ), right[t] );
+        }
+        else {
+            int child = left[t] != NIL ? left[t] : right[t];
+            release( t );
+            t = child;
+        }
+        return balance( t );
+    }
+
+    /**
+     * Internal method to restore the AVL balance of a subtree after a removal.
+     * @param t the node that roots the subtree; its children are balanced.
+     * @return the new root of the subtree.
+     */
+    private int balance( int t ) {
+        if( t == NIL )
+            return t;
+
+        if( height( left[t] ) - height( right[t] ) > 1 )
+            if( height( left[left[t]] ) >= height( right[left[t]] ) )
+                t = rotateWithLeftChild( t );
+            else
+                t = doubleWithLeftChild( t );
+        else if( height( right[t] ) - height( left[t] ) > 1 )
+            if( height( right[right[t]] ) >= height( left[right[t]] ) )
+                t = rotateWithRightChild( t );
+            else
+                t = doubleWithRightChild( t );
+
+        updateHeight( t );
+        return t;
+    }
+
+    /**
+     * Internal method to build a balanced subtree from a sorted range, allocating nodes in preorder.
+     * @param sorted the items in ascending order.
+     * @param from index of the first item of the range.
+     * @param to index one past the last item of the range.
+     * @return the root of the subtree.
+     */
+    private int buildBalanced( List<? extends T> sorted, int from, int to ) {
+        if( from >= to )
+            return NIL;
+        int middle = ( from + to ) >>> 1;
+        int t = allocate( sorted.get( middle ), NIL, NIL );
+        // Read the children back into locals first: allocating may replace the arrays
+        int lt = buildBalanced( sorted, from, middle );
+        left[t] = lt;
+        int rt = buildBalanced( sorted, middle + 1, to );
+        right[t] = rt;
+        updateHeight( t );
+        return t;
+    }
+
+    /**
+     * Internal method to take a node from the free list or the unused slots, growing the arrays if needed.
+     * @return the new node.
+     */
+    private int allocate( T x, int lt, int rt ) {
+        int t;
+        if( free != NIL ) {
+            t = free;
+            free = left[t];
+        }
+        else {
+            if( used == elements.length )
+                grow( );
+            t = used++;
+        }
+        elements[t] = x;
+        left[t] = lt;
+        right[t] = rt;
+        height[t] = 0;
+        size++;
+        return t;
+    }
+
+    /**
+     * Internal method to put a removed node on the free list.
+     */
+    private void release( int t ) {
+        elements[t] = null;
+        left[t] = free;
+        free = t;
+        size--;
+    }
+
+    /**
+     * Internal method to grow the arrays by half.
+     */
+    private void grow( ) {
+        int capacity = Math.max( INITIAL_CAPACITY, elements.length + ( elements.length >> 1 ) );
+        elements = Arrays.copyOf( elements, capacity );
+        left = Arrays.copyOf( left, capacity );
+        right = Arrays.copyOf( right, capacity );
+        height = Arrays.copyOf( height, capacity );
+    }
+
+    /**
+     * Internal method to find the largest node in a subtree.
+     */
+    private int findMax( int t ) {
+        if( t == NIL ) return t;
+
+        while( right[t] != NIL )
+            t = right[t];
+        return t;
+    }
+
+    /**
+     * Internal method to find the smallest node in a subtree.
+     */
+    private int findMin( int t ) {
+        if( t == NIL ) return t;
+
+        while( left[t] != NIL )
+            t = left[t];
+        return t;
+    }
+
+    /**
+     * Return the height of node t, or -1, if NIL.
+     */
+    private int height( int t ) {
+        return t == NIL ? -1 : height[t];
+    }
+
+    /**
+     * Recompute the height of node t from its children.
+     */
+    private void updateHeight( int t ) {
+        height[t] = Math.max( height( left[t] ), height( right[t] ) ) + 1;
+    }
+
+    /**
+     * Rotate binary tree node with left child.
+     * For AVL trees, this is a single rotation for case 1.
+     * Update heights, then return new root.
+     */
+    private int rotateWithLeftChild( int k2 ) {
+        int k1 = left[k2];
+        left[k2] = right[k1];
+        right[k1] = k2;
+        updateHeight( k2 );
+        updateHeight( k1 );
+        return k1;
+    }
+
+    /**
+     * Rotate binary tree node with right child.
+     * For AVL trees, this is a single rotation for case 4.
+     * Update heights, then return new root.
+     */
+    private int rotateWithRightChild( int k1 ) {
+        int k2 = right[k1];
+        right[k1] = left[k2];
+        left[k2] = k1;
+        updateHeight( k1 );
+        updateHeight( k2 );
+        return k2;
+    }
+
+    /**
+     * Double rotate binary tree node: first left child
+     * with its right child; then node k3 with new left child.
+     * For AVL trees, this is a double rotation for case 2.
+     */
+    private int doubleWithLeftChild( int k3 ) {
+        left[k3] = rotateWithRightChild( left[k3] );
+        return rotateWithLeftChild( k3 );
+    }
+
+    /**
+     * Double rotate binary tree node: first right child
+     * with its left child; then node k1 with new right child.
+     * For AVL trees, this is a double rotation for case 3.
+     */
+    private int doubleWithRightChild( int k1 ) {
+        right[k1] = rotateWithLeftChild( right[k1] );
+        return rotateWithRightChild( k1 );
+    }
+
+    /**
+     * Inorder iteration with an int stack of the nodes whose left subtree is being visited,
+     * optionally limited to the items from low (inclusive) to high (exclusive).
+     */
+    private class InorderIterator implements Iterator<T> {
+        private final T high;
+        private int[] stack = new int[Math.max( 1, height( root ) + 1 )];
+        private int depth;
+
+        InorderIterator( T low, T high ) {
+            this.high = high;
+            // Push the path to the first item not below low
+            int t = root;
+            while( t != NIL )
+                if( low != null && low.compareTo( elementAt( t ) ) > 0 )
+                    t = right[t];
+                else {
+                    push( t );
+                    t = left[t];
+                }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0 && ( high == null || high.compareTo( elementAt( stack[depth - 1] ) ) > 0 );
+        }
+
+        @Override
+        public T next() {
+            if( !hasNext() )
+                throw new NoSuchElementException();
+            int t = stack[--depth];
+            for( int child = right[t]; child != NIL; child = left[child] )
+                push( child );
+            return elementAt( t );
+        }
+
+        private void push( int t ) {
+            if( depth == stack.length )
+                stack = Arrays.copyOf( stack, depth * 2 );
+            stack[depth++] = t;
+        }
+    }
+
+    /**
+     * Preorder iteration with an int stack of the subtrees still to visit.
+     */
+    private class PreorderIterator implements Iterator<T> {
+        private int[] stack = new int[Math.max( 1, height( root ) + 2 )];
+        private int depth;
+
+        PreorderIterator( ) {
+            if( root != NIL )
+                push( root );
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public T next() {
+            if( depth == 0 )
+                throw new NoSuchElementException();
+            int t = stack[--depth];
+            if( right[t] != NIL )
+                push( right[t] );
+            if( left[t] != NIL )
+                push( left[t] );
+            return elementAt( t );
+        }
+
+        private void push( int t ) {
+            if( depth == stack.length )
+                stack = Arrays.copyOf( stack, depth * 2 );
+            stack[depth++] = t;
+        }
+    }
+
+    /**
+     * Postorder iteration with an int stack of the path to the next node.
+     */
+    private class PostorderIterator implements Iterator<T> {
+        private int[] stack = new int[Math.max( 1, height( root ) + 1 )];
+        private int depth;
+
+        PostorderIterator( ) {
+            pushFirstLeaf( root );
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public T next() {
+            if( depth == 0 )
+                throw new NoSuchElementException();
+            int t = stack[--depth];
+            // After a left child, the parent's right subtree comes next
+            if( depth > 0 && left[stack[depth - 1]] == t )
+                pushFirstLeaf( right[stack[depth - 1]] );
+            return elementAt( t );
+        }
+
+        /**
+         * Push the path to the first node of the subtree in postorder.
+         */
+        private void pushFirstLeaf( int t ) {
+            while( t != NIL ) {
+                if( depth == stack.length )
+                    stack = Arrays.copyOf( stack, depth * 2 );
+                stack[depth++] = t;
+                t = left[t] != NIL ? left[t] : right[t];
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package cmsc256;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence view over a buffer of ASCII bytes.
+ * Characters are read straight from the buffer, so slicing a token out of
+ * the input only records its offsets; bytes are copied when toString() is called.
+ */
+public final class AsciiCharSequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    /**
+     * @param bytes buffer holding only ASCII bytes; absolute indexes are used.
+     */
+    public AsciiCharSequence(ByteBuffer bytes) {
+        this(bytes, 0, bytes.limit());
+    }
+
+    private AsciiCharSequence(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the buffer the characters are read from, for scanning the bytes in bulk.
+     */
+    ByteBuffer buffer() {
+        return bytes;
+    }
+
+    /**
+     * @return the index in the buffer of the first character.
+     */
+    int offset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new AsciiCharSequence(bytes, offset + start, end - start);
+    }
+
+    /**
+     * Copy a range of characters into a new string.
+     * @param start offset of the first character.
+     * @param end offset one past the last character.
+     * @return the characters as a string.
+     */
+    public String substring(int start, int end) {
+        byte[] copy = new byte[end - start];
+        bytes.get(offset + start, copy);
+        return new String(copy, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return substring(0, length);
+    }
+}
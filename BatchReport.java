@@ -0,0 +1,85 @@
+package cmsc256;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregate outcome of validating many Java files.
+ * Holds the result of each file, the files that could not be read, and the
+ * valid and invalid identifiers merged over all files.
+ */
+public class BatchReport {
+    private final Map<Path, ValidationResult> results;
+    private final Map<Path, Exception> failures;
+    private final Map<String, Integer> validTotals = new HashMap<>();
+    private final Map<String, Map<Path, List<Integer>>> invalidLocations = new HashMap<>();
+
+    /**
+     * @param results the result of each validated file.
+     * @param failures the error of each file that could not be validated.
+     */
+    public BatchReport(Map<Path, ValidationResult> results, Map<Path, Exception> failures) {
+        this.results = Collections.unmodifiableMap(new TreeMap<>(results));
+        this.failures = Collections.unmodifiableMap(new TreeMap<>(failures));
+        // Merge the per file results in path order
+        for (Map.Entry<Path, ValidationResult> file : this.results.entrySet()) {
+            ValidationResult result = file.getValue();
+            result.getValidIdentifiers().forEach((word, count) -> validTotals.merge(word, count, Integer::sum));
+            result.getInvalidIdentifiers().forEach((word, lines) ->
+                    invalidLocations.computeIfAbsent(word, k -> new TreeMap<>()).put(file.getKey(), lines));
+        }
+    }
+
+    /**
+     * @return the result of each validated file, ordered by path.
+     */
+    public Map<Path, ValidationResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the error of each file that could not be validated, ordered by path.
+     */
+    public Map<Path, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return map of each valid identifier to its number of occurrences in all files.
+     */
+    public Map<String, Integer> getValidIdentifierTotals() {
+        return validTotals;
+    }
+
+    /**
+     * @return map of each invalid identifier to the files and lines it occurs on.
+     */
+    public Map<String, Map<Path, List<Integer>>> getInvalidIdentifierLocations() {
+        return invalidLocations;
+    }
+
+    /**
+     * @return the files containing at least one invalid identifier, ordered by path.
+     */
+    public List<Path> getFilesWithInvalidIdentifiers() {
+        List<Path> files = new ArrayList<>();
+        results.forEach((path, result) -> {
+            if (!result.getInvalidIdentifiers().isEmpty()) {
+                files.add(path);
+            }
+        });
+        return files;
+    }
+
+    /**
+     * @return the number of files validated successfully.
+     */
+    public int getFileCount() {
+        return results.size();
+    }
+}
@@ -0,0 +1,170 @@
+package cmsc256;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validates many Java files in parallel.
+ * Directories are walked for .java files and every file is scanned as its own
+ * task on the given executor. All tasks of a batch share one immutable
+ * snapshot of the keywords, even if the keyword dictionary is updated while
+ * the batch runs, and the per file results are merged into a BatchReport.
+ * The scans of a batch share an IdentifierPool, so an identifier occurring in
+ * many files is held once by the report rather than once per file.
+ * Every task reports its read and scan to the same ValidatorMetrics, which
+ * must therefore accept reports from many threads, as CountingMetrics does.
+ */
+public class BatchValidator {
+    private final KeywordDictionary keywords;
+    private final Executor executor;
+    private final ResultCache resultCache;
+    private final ValidatorMetrics metrics;
+
+    /**
+     * Create a batch validator running on the common fork-join pool.
+     * @param keywordFileName the keyword file to validate against.
+     * @throws FileNotFoundException if the keyword file does not exist.
+     */
+    public BatchValidator(String keywordFileName) throws FileNotFoundException {
+        this(KeywordCache.get(new File(keywordFileName)), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param keywords the keyword set shared by all files.
+     * @param executor the executor running one task per file.
+     */
+    public BatchValidator(KeywordSet keywords, Executor executor) {
+        this(new KeywordDictionary(keywords), executor);
+    }
+
+    /**
+     * @param keywords the keyword dictionary; each batch uses its snapshot at the start of the batch.
+     * @param executor the executor running one task per file.
+     */
+    public BatchValidator(KeywordDictionary keywords, Executor executor) {
+        this(keywords, executor, null);
+    }
+
+    /**
+     * @param keywords the keyword dictionary; each batch uses its snapshot at the start of the batch.
+     * @param executor the executor running one task per file.
+     * @param resultCache the cache answering unchanged files without scanning them, or null for none.
+     */
+    public BatchValidator(KeywordDictionary keywords, Executor executor, ResultCache resultCache) {
+        this(keywords, executor, resultCache, null);
+    }
+
+    /**
+     * @param keywords the keyword dictionary; each batch uses its snapshot at the start of the batch.
+     * @param executor the executor running one task per file.
+     * @param resultCache the cache answering unchanged files without scanning them, or null for none.
+     * @param metrics the registry receiving the counts and timings of every file, or null for none.
+     */
+    public BatchValidator(KeywordDictionary keywords, Executor executor, ResultCache resultCache,
+                          ValidatorMetrics metrics) {
+        if (keywords == null || executor == null) {
+            throw new IllegalArgumentException("Keywords and executor cannot be null");
+        }
+        this.keywords = keywords;
+        this.executor = executor;
+        this.resultCache = resultCache;
+        this.metrics = metrics == null ? ValidatorMetrics.NOOP : metrics;
+    }
+
+    /**
+     * Validate files and directories.
+     * @param paths Java files, or directories to search for .java files.
+     * @return the merged report.
+     * @throws IOException if a directory cannot be walked.
+     */
+    public BatchReport validate(Path... paths) throws IOException {
+        return validate(Arrays.asList(paths));
+    }
+
+    /**
+     * Validate files and directories.
+     * @param paths Java files, or directories to search for .java files.
+     * @return the merged report.
+     * @throws IOException if a directory cannot be walked.
+     */
+    public BatchReport validate(Collection<Path> paths) throws IOException {
+        List<Path> files = findJavaFiles(paths);
+        KeywordMatcher matcher = keywords.snapshot().getMatcher();
+        IdentifierPool pool = new IdentifierPool();
+
+        // Start one task per file, then wait for all of them
+        List<CompletableFuture<ValidationResult>> tasks = new ArrayList<>(files.size());
+        for (Path file : files) {
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    long start = System.nanoTime();
+                    ByteBuffer content = SourceFile.readBytes(file.toFile());
+                    metrics.time(ValidatorMetrics.Timer.FILE_READ, System.nanoTime() - start);
+                    metrics.add(ValidatorMetrics.Counter.BYTES, content.limit());
+                    if (resultCache != null) {
+                        return resultCache.analyze(content, matcher,
+                                source -> SourceAnalyzer.analyze(source, matcher, metrics, pool));
+                    }
+                    return SourceAnalyzer.analyze(SourceFile.decode(content), matcher, metrics, pool);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        Map<Path, ValidationResult> results = new HashMap<>();
+        Map<Path, Exception> failures = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                results.put(files.get(i), tasks.get(i).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (!(cause instanceof Exception)) {
+                    throw e;
+                }
+                failures.put(files.get(i), (Exception) cause);
+            }
+        }
+        return new BatchReport(results, failures);
+    }
+
+    /**
+     * Expand directories into the .java files they contain; duplicates are removed.
+     * @param paths files and directories.
+     * @return the files to validate.
+     * @throws IOException if a directory cannot be walked.
+     */
+    public static List<Path> findJavaFiles(Collection<Path> paths) throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files.addAll(walk.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return new ArrayList<>(files);
+    }
+}
@@ -0,0 +1,55 @@
+package cmsc256;
+
+/**
+ * A reusable view of a range of characters in another sequence.
+ * The scanner points one instance at each token in turn, so looking at a
+ * token does not copy it; toString() makes the copy when it has to be kept.
+ */
+public final class CharRange implements CharSequence {
+    private CharSequence text = "";
+    private int start;
+    private int end;
+
+    /**
+     * Point this view at a range of characters.
+     * @param text the characters to view.
+     * @param start offset of the first character.
+     * @param end offset one past the last character.
+     * @return this view.
+     */
+    public CharRange set(CharSequence text, int start, int end) {
+        if (start < 0 || end < start || end > text.length()) {
+            throw new IndexOutOfBoundsException("Range " + start + " to " + end + " of " + text.length());
+        }
+        this.text = text;
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + (end - start));
+        }
+        return text.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to < from || to > end - start) {
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " of " + (end - start));
+        }
+        return text.subSequence(start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return SourceAnalyzer.substring(text, start, end);
+    }
+}
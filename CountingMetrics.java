@@ -0,0 +1,131 @@
+package cmsc256;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics registry that keeps every counter and timer in memory.
+ * It uses LongAdders, so the validators of a BatchValidator can report from
+ * many threads without contending, and can be published as a JMX MBean.
+ */
+public class CountingMetrics implements ValidatorMetrics, ValidatorMetricsMXBean {
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final Timer[] TIMERS = Timer.values();
+
+    private final LongAdder[] counters = new LongAdder[COUNTERS.length];
+    private final LongAdder[] timerCounts = new LongAdder[TIMERS.length];
+    private final LongAdder[] timerNanos = new LongAdder[TIMERS.length];
+    private final LongAccumulator[] timerMax = new LongAccumulator[TIMERS.length];
+
+    public CountingMetrics() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        for (int i = 0; i < TIMERS.length; i++) {
+            timerCounts[i] = new LongAdder();
+            timerNanos[i] = new LongAdder();
+            timerMax[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    @Override
+    public void add(Counter counter, long amount) {
+        counters[counter.ordinal()].add(amount);
+    }
+
+    @Override
+    public void time(Timer timer, long nanos) {
+        timerCounts[timer.ordinal()].increment();
+        timerNanos[timer.ordinal()].add(nanos);
+        timerMax[timer.ordinal()].accumulate(nanos);
+    }
+
+    /**
+     * @param counter the counter.
+     * @return its current value.
+     */
+    public long get(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * @param timer the timer.
+     * @return the number of times it ran.
+     */
+    public long getCount(Timer timer) {
+        return timerCounts[timer.ordinal()].sum();
+    }
+
+    /**
+     * @param timer the timer.
+     * @return its total time in nanoseconds.
+     */
+    public long getTotalNanos(Timer timer) {
+        return timerNanos[timer.ordinal()].sum();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) {
+            values.put(counter.name(), get(counter));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getTimerCounts() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Timer timer : TIMERS) {
+            values.put(timer.name(), getCount(timer));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getTimerTotalNanos() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Timer timer : TIMERS) {
+            values.put(timer.name(), getTotalNanos(timer));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getTimerMaxNanos() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Timer timer : TIMERS) {
+            values.put(timer.name(), timerMax[timer.ordinal()].get());
+        }
+        return values;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+        for (int i = 0; i < TIMERS.length; i++) {
+            timerCounts[i].reset();
+            timerNanos[i].reset();
+            timerMax[i].reset();
+        }
+    }
+
+    /**
+     * Publish this registry on the platform MBean server as cmsc256:type=ValidatorMetrics,name=name.
+     * @param name the name distinguishing this registry from others.
+     * @return the name it was registered under.
+     * @throws JMException if the name is invalid or already registered.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("cmsc256:type=ValidatorMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+}
@@ -0,0 +1,480 @@
+package cmsc256;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Inverted index from identifier to the files and lines it occurs on, built
+ * from the valid and invalid identifiers of many files.
+ * Each identifier keeps its postings in one byte array: for every file, the
+ * difference from the previous file number, the number of lines and the
+ * differences between the lines, all as variable length integers. Words are
+ * also kept in an AVLTree for prefix queries. The index can be saved to and
+ * loaded from a file, with the words in sorted order; a loaded file is
+ * checked so that corrupt data fails with an IOException.
+ * Adding files is synchronized; queries may run while files are being added.
+ */
+public class IdentifierIndex {
+    private static final int MAGIC = 0x56494458; // "VIDX"
+    private static final int VERSION = 2; // 1 wrote the words unsorted
+
+    private final List<String> files = new ArrayList<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private AVLTree<String> words = new AVLTree<>();
+    private final Map<Path, Exception> failures = new LinkedHashMap<>();
+
+    /**
+     * Scan files and directories in parallel and index their identifiers.
+     * Files are numbered in the order findJavaFiles returns them, whichever scan finishes first.
+     * @param paths Java files, or directories to search for .java files.
+     * @param keywords the reserved words, which are not indexed.
+     * @param executor the executor scanning the files.
+     * @return the index; files that could not be read are listed by getFailures().
+     * @throws IOException if a directory cannot be walked.
+     */
+    public static IdentifierIndex build(Collection<Path> paths, KeywordMatcher keywords, Executor executor)
+            throws IOException {
+        List<Path> javaFiles = BatchValidator.findJavaFiles(paths);
+        List<CompletableFuture<FileScan>> scans = new ArrayList<>(javaFiles.size());
+        for (Path file : javaFiles) {
+            scans.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return scan(SourceFile.read(file.toFile()), keywords);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        IdentifierIndex index = new IdentifierIndex();
+        for (int i = 0; i < javaFiles.size(); i++) {
+            try {
+                index.add(javaFiles.get(i).toString(), scans.get(i).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (!(cause instanceof Exception)) {
+                    throw e;
+                }
+                index.failures.put(javaFiles.get(i), (Exception) cause);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Index the identifiers of one more file.
+     * @param file the name the file is reported under.
+     * @param source the Java source text.
+     * @param keywords the reserved words, which are not indexed.
+     */
+    public void add(String file, CharSequence source, KeywordMatcher keywords) {
+        add(file, scan(source, keywords));
+    }
+
+    /**
+     * Find every place an identifier occurs.
+     * @param identifier the identifier.
+     * @return its postings in file order and line order, empty if it is not indexed.
+     */
+    public synchronized List<Posting> find(String identifier) {
+        Entry entry = entries.get(identifier);
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        List<Posting> postings = new ArrayList<>(entry.lineCount);
+        entry.forEachPosting((file, line) -> postings.add(new Posting(files.get(file), line)));
+        return postings;
+    }
+
+    /**
+     * @param identifier the identifier.
+     * @return the number of times it occurs in all files.
+     */
+    public synchronized long count(String identifier) {
+        Entry entry = entries.get(identifier);
+        return entry == null ? 0 : entry.occurrences;
+    }
+
+    /**
+     * @param identifier the identifier.
+     * @return VALID or INVALID, or null if it is not indexed.
+     */
+    public synchronized IdentifierKind kindOf(String identifier) {
+        Entry entry = entries.get(identifier);
+        return entry == null ? null : entry.kind;
+    }
+
+    /**
+     * Find the most frequent identifiers.
+     * @param n the number of identifiers to return.
+     * @param kind VALID or INVALID to only consider that kind, or null for both.
+     * @return up to n identifiers and their occurrence counts, most frequent first.
+     */
+    public synchronized List<Map.Entry<String, Long>> top(int n, IdentifierKind kind) {
+        if (n <= 0) {
+            return Collections.emptyList();
+        }
+        // keep the n most frequent seen so far, least frequent at the head
+        PriorityQueue<Entry> heap = new PriorityQueue<>(n + 1, IdentifierIndex::compareFrequency);
+        for (Entry entry : entries.values()) {
+            if (kind != null && entry.kind != kind) {
+                continue;
+            }
+            heap.add(entry);
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<String, Long>> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            Entry entry = heap.poll();
+            result.add(Map.entry(entry.word, entry.occurrences));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Find the indexed identifiers starting with a prefix.
+     * @param prefix the prefix.
+     * @return the matching identifiers in sorted order.
+     */
+    public synchronized List<String> withPrefix(String prefix) {
+        List<String> result = new ArrayList<>();
+        AVLTree.withPrefix(words, prefix).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * @return the number of distinct identifiers.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the indexed files in the order they were added.
+     */
+    public synchronized List<String> getFiles() {
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * @return the files build() could not read, with the reason.
+     */
+    public synchronized Map<Path, Exception> getFailures() {
+        return new LinkedHashMap<>(failures);
+    }
+
+    /**
+     * Save the index; the postings are written as they are stored.
+     * @param file the file to write.
+     * @throws IOException if writing fails.
+     */
+    public synchronized void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            ResultCodec.writeVarInt(out, files.size());
+            for (String name : files) {
+                ResultCodec.writeString(out, name);
+            }
+            ResultCodec.writeVarInt(out, entries.size());
+            for (String word : words) {
+                Entry entry = entries.get(word);
+                ResultCodec.writeString(out, entry.word);
+                out.writeByte(entry.kind.ordinal());
+                out.writeLong(entry.occurrences);
+                ResultCodec.writeVarInt(out, entry.lineCount);
+                ResultCodec.writeVarInt(out, entry.lastFile);
+                ResultCodec.writeVarInt(out, entry.size);
+                out.write(entry.postings, 0, entry.size);
+            }
+        }
+    }
+
+    /**
+     * Load an index written by save().
+     * @param file the file to read.
+     * @return the index.
+     * @throws IOException if reading fails, the file is not an index in this format or it is corrupt.
+     */
+    public static IdentifierIndex load(Path file) throws IOException {
+        // every count and length is checked against the file size, as each item takes at least one byte
+        int limit = (int) Math.min(Files.size(file), Integer.MAX_VALUE);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not an identifier index in a supported format");
+            }
+            IdentifierIndex index = new IdentifierIndex();
+            int fileCount = ResultCodec.readLength(in, limit);
+            for (int i = 0; i < fileCount; i++) {
+                index.files.add(ResultCodec.readString(in, limit));
+            }
+            IdentifierKind[] kinds = IdentifierKind.values();
+            int entryCount = ResultCodec.readLength(in, limit);
+            List<String> sortedWords = new ArrayList<>(Math.min(entryCount, 1024));
+            for (int i = 0; i < entryCount; i++) {
+                String word = ResultCodec.readString(in, limit);
+                if (i > 0 && sortedWords.get(i - 1).compareTo(word) >= 0) {
+                    throw new IOException("Corrupt identifier index: words are not sorted and unique");
+                }
+                int kind = in.readByte();
+                if (kind < 0 || kind >= kinds.length) {
+                    throw new IOException("Corrupt identifier index: kind " + kind);
+                }
+                Entry entry = new Entry(word, kinds[kind]);
+                entry.occurrences = in.readLong();
+                entry.lineCount = ResultCodec.readVarInt(in);
+                entry.lastFile = ResultCodec.readVarInt(in);
+                entry.size = ResultCodec.readLength(in, limit);
+                entry.postings = new byte[entry.size];
+                in.readFully(entry.postings);
+                if (entry.occurrences < entry.lineCount || !entry.isConsistent(fileCount)) {
+                    throw new IOException("Corrupt identifier index: bad postings for " + word);
+                }
+                index.entries.put(entry.word, entry);
+                sortedWords.add(entry.word);
+            }
+            index.words = AVLTree.fromSorted(sortedWords);
+            return index;
+        }
+    }
+
+    /**
+     * Internal method to merge the scan of one file into the index.
+     */
+    private synchronized void add(String file, FileScan scan) {
+        int fileNumber = files.size();
+        files.add(file);
+        scan.valid.forEach((word, count, lines, lineCount) ->
+                entryFor(word, IdentifierKind.VALID).addFile(fileNumber, count, lines, lineCount));
+        scan.invalid.forEach((word, count, lines, lineCount) ->
+                entryFor(word, IdentifierKind.INVALID).addFile(fileNumber, count, lines, lineCount));
+    }
+
+    /**
+     * Internal method to find or add the entry of an identifier.
+     */
+    private Entry entryFor(String word, IdentifierKind kind) {
+        Entry entry = entries.get(word);
+        if (entry == null) {
+            entry = new Entry(word, kind);
+            entries.put(word, entry);
+            words.insert(word);
+        }
+        return entry;
+    }
+
+    /**
+     * Internal method to collect the lines of every valid and invalid identifier of a source.
+     */
+    private static FileScan scan(CharSequence source, KeywordMatcher keywords) {
+        FileScan scan = new FileScan();
+        SourceAnalyzer.forEachIdentifier(source, keywords, (kind, text, line, column) -> {
+            if (kind == IdentifierKind.VALID) {
+                scan.valid.addLine(text, 0, text.length(), line);
+            } else if (kind == IdentifierKind.INVALID) {
+                scan.invalid.addLine(text, 0, text.length(), line);
+            }
+            return true;
+        });
+        return scan;
+    }
+
+    /**
+     * Order entries by occurrence count, then by reverse word so ties come out alphabetically.
+     */
+    private static int compareFrequency(Entry a, Entry b) {
+        int compare = Long.compare(a.occurrences, b.occurrences);
+        return compare != 0 ? compare : b.word.compareTo(a.word);
+    }
+
+    /**
+     * One place an identifier occurs.
+     */
+    public static final class Posting {
+        private final String file;
+        private final int line;
+
+        public Posting(String file, int line) {
+            this.file = file;
+            this.line = line;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Posting)) {
+                return false;
+            }
+            Posting posting = (Posting) other;
+            return line == posting.line && file.equals(posting.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + line;
+        }
+
+        @Override
+        public String toString() {
+            return file + ":" + line;
+        }
+    }
+
+    /**
+     * The identifiers of one file, before they are merged into the index.
+     */
+    private static final class FileScan {
+        private final IdentifierTable valid = new IdentifierTable();
+        private final IdentifierTable invalid = new IdentifierTable();
+    }
+
+    /**
+     * Receives decoded postings.
+     */
+    private interface PostingVisitor {
+        void visit(int file, int line);
+    }
+
+    /**
+     * One identifier with its delta encoded postings.
+     */
+    private static final class Entry {
+        private final String word;
+        private final IdentifierKind kind;
+        private long occurrences;
+        private int lineCount;     // postings, counting each line once
+        private int lastFile;      // file number of the last group, the base of the next delta
+        private byte[] postings = new byte[8];
+        private int size;
+
+        private Entry(String word, IdentifierKind kind) {
+            this.word = word;
+            this.kind = kind;
+        }
+
+        /**
+         * Append the lines of one file; files must be added in increasing order.
+         */
+        private void addFile(int file, int count, int[] lines, int used) {
+            occurrences += count;
+            lineCount += used;
+            writeVarInt(file - lastFile);
+            lastFile = file;
+            writeVarInt(used);
+            int previous = 0;
+            for (int i = 0; i < used; i++) {
+                writeVarInt(lines[i] - previous);
+                previous = lines[i];
+            }
+        }
+
+        private void forEachPosting(PostingVisitor visitor) {
+            int[] position = {0};
+            int file = 0;
+            while (position[0] < size) {
+                file += readVarInt(position);
+                int lines = readVarInt(position);
+                int line = 0;
+                for (int i = 0; i < lines; i++) {
+                    line += readVarInt(position);
+                    visitor.visit(file, line);
+                }
+            }
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > postings.length) {
+                postings = Arrays.copyOf(postings, Math.max(postings.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                postings[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            postings[size++] = (byte) value;
+        }
+
+        /**
+         * Check that the postings decode to lineCount increasing lines in increasing files below
+         * fileCount, the last of them lastFile, so queries never read past them or a missing file.
+         */
+        private boolean isConsistent(int fileCount) {
+            int[] position = {0};
+            int file = 0;
+            long lines = 0;
+            while (position[0] < size) {
+                int delta = readCheckedVarInt(position);
+                int count = readCheckedVarInt(position);
+                // only the first group can be in file 0
+                if (delta < 0 || (delta == 0 && lines > 0) || count <= 0) {
+                    return false;
+                }
+                file += delta;
+                if (file < 0 || file >= fileCount) {
+                    return false;
+                }
+                int line = 0;
+                for (int i = 0; i < count; i++) {
+                    int step = readCheckedVarInt(position);
+                    if (step <= 0 || line + step < 0) {
+                        return false;
+                    }
+                    line += step;
+                }
+                lines += count;
+            }
+            return lines == lineCount && file == lastFile;
+        }
+
+        /**
+         * Read a variable length integer, or return -1 if it is malformed or runs past the postings.
+         */
+        private int readCheckedVarInt(int[] position) {
+            int value = 0;
+            for (int shift = 0; shift < 35 && position[0] < size; shift += 7) {
+                byte b = postings[position[0]++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value < 0 ? -1 : value;
+                }
+            }
+            return -1;
+        }
+
+        private int readVarInt(int[] position) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = postings[position[0]++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
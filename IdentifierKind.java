@@ -0,0 +1,15 @@
+package cmsc256;
+
+/**
+ * How a token found in Java source was classified.
+ */
+public enum IdentifierKind {
+    // a legal identifier that is not a keyword
+    VALID,
+    // a reserved word or operator from the keyword list
+    RESERVED,
+    // a word that is not a legal identifier
+    INVALID,
+    // a number literal, which is neither valid nor invalid
+    NUMERIC
+}
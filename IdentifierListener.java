@@ -0,0 +1,18 @@
+package cmsc256;
+
+/**
+ * Receives each token of a Java source as soon as it is lexed.
+ */
+@FunctionalInterface
+public interface IdentifierListener {
+
+    /**
+     * Called once per token, in source order.
+     * @param kind how the token was classified.
+     * @param text the token; only valid during the call, so copy it with toString() to keep it.
+     * @param line the line of the token, starting at 1.
+     * @param column the column of the token, starting at 1.
+     * @return true to continue scanning, false to stop.
+     */
+    boolean onIdentifier(IdentifierKind kind, CharSequence text, int line, int column);
+}
@@ -0,0 +1,48 @@
+package cmsc256;
+
+/**
+ * One classified token of a Java source and where it was found.
+ */
+public final class IdentifierOccurrence {
+    private final IdentifierKind kind;
+    private final String text;
+    private final int line;
+    private final int column;
+
+    public IdentifierOccurrence(IdentifierKind kind, String text, int line, int column) {
+        if (kind == null || text == null) {
+            throw new IllegalArgumentException("Kind and text cannot be null");
+        }
+        this.kind = kind;
+        this.text = text;
+        this.line = line;
+        this.column = column;
+    }
+
+    public IdentifierKind getKind() {
+        return kind;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the line of the token, starting at 1.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the column of the token, starting at 1.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + text + " at " + line + ":" + column;
+    }
+}
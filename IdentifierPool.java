@@ -0,0 +1,115 @@
+package cmsc256;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pool of identifier Strings shared by the scans of a batch, so an
+ * identifier found in many files is kept in memory once.
+ * Identifiers are looked up by a range of characters in the source and a
+ * String is only made when the pool does not hold the identifier yet.
+ * The pool is an open-addressed table filled with compare-and-set and never
+ * resized: a lookup probes a few slots only, and an identifier that finds
+ * them all taken, or the pool full, is returned as a new String without being pooled.
+ * Safe for use by many threads without locking.
+ */
+public class IdentifierPool {
+    /** The default number of slots. */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int MAX_PROBES = 8;
+
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public IdentifierPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two; at most three quarters are filled.
+     */
+    public IdentifierPool(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int slotCount = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+        slots = new AtomicReferenceArray<>(slotCount);
+        mask = slotCount - 1;
+        maxSize = slotCount / 4 * 3;
+    }
+
+    /**
+     * Find the pooled copy of an identifier given as a range of characters.
+     * @param text the characters holding the identifier.
+     * @param start offset of the first character.
+     * @param end offset one past the last character.
+     * @param hash the String hash code of the identifier.
+     * @return the pooled String, or a new String if the identifier could not be pooled.
+     */
+    public String intern(CharSequence text, int start, int end, int hash) {
+        int length = end - start;
+        int slot = mix(hash) & mask;
+        String copy = null;
+        for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            String key = slots.get(slot);
+            if (key == null) {
+                if (size.get() >= maxSize) {
+                    break;
+                }
+                if (copy == null) {
+                    copy = SourceAnalyzer.substring(text, start, end);
+                }
+                if (slots.compareAndSet(slot, null, copy)) {
+                    size.incrementAndGet();
+                    return copy;
+                }
+                key = slots.get(slot); // another thread took the slot; it may have added the same identifier
+            }
+            if (key.hashCode() == hash && regionEquals(key, text, start, length)) {
+                return key;
+            }
+        }
+        return copy != null ? copy : SourceAnalyzer.substring(text, start, end);
+    }
+
+    /**
+     * Find the pooled copy of an identifier.
+     * @param word the identifier.
+     * @return the pooled String, or word itself if it is not pooled.
+     */
+    public String intern(String word) {
+        return intern(word, 0, word.length(), word.hashCode());
+    }
+
+    /**
+     * @return the number of pooled identifiers.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Internal method to compare a pooled String with a range of characters.
+     */
+    private static boolean regionEquals(String key, CharSequence text, int start, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Internal method to spread the bits of a hash code over the slot index.
+     */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,114 @@
+package cmsc256;
+
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the tokens of a Java source to reactive subscribers.
+ * Every subscriber gets its own scan of the source, and tokens are only lexed
+ * when the subscriber has requested them, so a slow subscriber holds the
+ * scan back instead of letting tokens pile up. Tokens are delivered on the
+ * given executor, one subscriber's tokens never on two threads at once.
+ */
+public class IdentifierPublisher implements Flow.Publisher<IdentifierOccurrence> {
+    private final CharSequence source;
+    private final KeywordMatcher keywords;
+    private final Executor executor;
+
+    /**
+     * @param source the Java source text.
+     * @param keywords the reserved words.
+     * @param executor the executor delivering the tokens.
+     */
+    public IdentifierPublisher(CharSequence source, KeywordMatcher keywords, Executor executor) {
+        if (source == null || keywords == null || executor == null) {
+            throw new IllegalArgumentException("Source, keywords and executor cannot be null");
+        }
+        this.source = source;
+        this.keywords = keywords;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super IdentifierOccurrence> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        subscriber.onSubscribe(new Subscription(subscriber));
+    }
+
+    /**
+     * One subscriber's scan. Requests add to the demand and start a drain on the
+     * executor unless one is already running; the running drain picks up the new demand.
+     */
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super IdentifierOccurrence> subscriber;
+        private final Spliterator<IdentifierOccurrence> tokens;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pending = new AtomicInteger(); // requests not yet seen by a drain
+        private volatile boolean done;
+        private volatile Throwable error; // an invalid request, reported by the next drain
+
+        Subscription(Flow.Subscriber<? super IdentifierOccurrence> subscriber) {
+            this.subscriber = subscriber;
+            this.tokens = SourceAnalyzer.occurrences(source, keywords);
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested " + n + " tokens, must be positive");
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        /**
+         * Deliver tokens while there is demand, until no request arrived during the delivery.
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                while (!done && (error != null || demand.get() > 0)) {
+                    if (error != null) {
+                        fail(error);
+                        return;
+                    }
+                    boolean more;
+                    try {
+                        more = tokens.tryAdvance(subscriber::onNext);
+                    } catch (RuntimeException e) {
+                        fail(e);
+                        return;
+                    }
+                    if (!more) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    demand.decrementAndGet();
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Stop the scan and report an error; only called from a drain.
+         */
+        private void fail(Throwable cause) {
+            done = true;
+            subscriber.onError(cause);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package cmsc256;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Open-addressed table from identifier to an occurrence count and a list of line numbers.
+ * Counts and lines are kept in int arrays so recording an occurrence does not box.
+ * An identifier can be given as a range of characters in the source; it is
+ * only copied into a String the first time the table sees it.
+ * Lines are expected in increasing order, so a repeated line is detected by
+ * checking only the last line recorded for the identifier.
+ * Tables given an IdentifierPool take the copies from the pool, so tables of
+ * different files share one String per identifier.
+ */
+public class IdentifierTable {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int[] NO_LINES = new int[0];
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] counts;
+    private int[][] lines;
+    private int[] lineCounts;
+    private int size;
+    private int mask;
+    private final IdentifierPool pool;
+
+    public IdentifierTable() {
+        this(null);
+    }
+
+    /**
+     * @param pool the pool new identifiers are copied from, or null to copy each one.
+     */
+    public IdentifierTable(IdentifierPool pool) {
+        this.pool = pool;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Add one occurrence of an identifier.
+     * @param word the identifier.
+     */
+    public void increment(String word) {
+        int slot = slotFor(word); // may grow the arrays, so look up the slot first
+        counts[slot]++;
+    }
+
+    /**
+     * Add one occurrence of an identifier given as a range of characters.
+     * @param text the characters holding the identifier.
+     * @param start offset of the first character.
+     * @param end offset one past the last character.
+     */
+    public void increment(CharSequence text, int start, int end) {
+        int slot = slotFor(text, start, end);
+        counts[slot]++;
+    }
+
+    /**
+     * Record that an identifier occurs on a line, unless it is the last line recorded for it.
+     * @param word the identifier.
+     * @param line the line number, not less than the lines recorded before.
+     */
+    public void addLine(String word, int line) {
+        int slot = slotFor(word);
+        counts[slot]++;
+        appendLine(slot, line);
+    }
+
+    /**
+     * Record that an identifier given as a range of characters occurs on a line.
+     * @param text the characters holding the identifier.
+     * @param start offset of the first character.
+     * @param end offset one past the last character.
+     * @param line the line number, not less than the lines recorded before.
+     */
+    public void addLine(CharSequence text, int start, int end, int line) {
+        int slot = slotFor(text, start, end);
+        counts[slot]++;
+        appendLine(slot, line);
+    }
+
+    /**
+     * Add every entry of another table, shifting its line numbers by an offset.
+     * The other table's lines must come after the lines in this table.
+     * @param other the table to add.
+     * @param lineOffset the amount added to each of the other table's lines.
+     */
+    public void addAll(IdentifierTable other, int lineOffset) {
+        for (int i = 0; i < other.keys.length; i++) {
+            String word = other.keys[i];
+            if (word == null) {
+                continue;
+            }
+            int slot = slotFor(word);
+            counts[slot] += other.counts[i];
+            for (int j = 0; j < other.lineCounts[i]; j++) {
+                appendLine(slot, other.lines[i][j] + lineOffset);
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct identifiers.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit every entry of the table in no particular order.
+     * @param visitor receives each identifier with its count and lines.
+     */
+    void forEach(EntryVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                visitor.visit(keys[i], counts[i], lines[i], lineCounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Receives the entries of a table; the lines array must not be kept or modified.
+     */
+    interface EntryVisitor {
+        void visit(String word, int count, int[] lines, int lineCount);
+    }
+
+    /**
+     * @return a new map of each identifier to its occurrence count.
+     */
+    public Map<String, Integer> toCountMap() {
+        Map<String, Integer> map = new HashMap<>(size * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                map.put(keys[i], counts[i]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * @return a new map of each identifier to the lines it occurs on.
+     */
+    public Map<String, List<Integer>> toLineMap() {
+        Map<String, List<Integer>> map = new HashMap<>(size * 2);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                List<Integer> list = new ArrayList<>(lineCounts[i]);
+                for (int j = 0; j < lineCounts[i]; j++) {
+                    list.add(lines[i][j]);
+                }
+                map.put(keys[i], list);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Internal method to append a line to a slot's list unless it is already the last one.
+     */
+    private void appendLine(int slot, int line) {
+        int used = lineCounts[slot];
+        int[] list = lines[slot];
+        if (used > 0 && list[used - 1] == line) {
+            return;
+        }
+        if (used == list.length) {
+            list = new int[Math.max(4, used * 2)];
+            System.arraycopy(lines[slot], 0, list, 0, used);
+            lines[slot] = list;
+        }
+        list[used] = line;
+        lineCounts[slot] = used + 1;
+    }
+
+    /**
+     * Internal method to find the slot of an identifier, adding it if it is missing.
+     */
+    private int slotFor(String word) {
+        int hash = word.hashCode();
+        int slot = mix(hash) & mask;
+        for (String key; (key = keys[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && key.equals(word)) {
+                return slot;
+            }
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            return slotFor(word);
+        }
+        keys[slot] = word;
+        hashes[slot] = hash;
+        lines[slot] = NO_LINES;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Internal method to find the slot of an identifier given as a range, adding a copy of it if it is missing.
+     */
+    private int slotFor(CharSequence text, int start, int end) {
+        // the same hash as String.hashCode(), so String and range lookups find the same slots
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int length = end - start;
+        int slot = mix(hash) & mask;
+        for (String key; (key = keys[slot]) != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && regionEquals(key, text, start, length)) {
+                return slot;
+            }
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            return slotFor(text, start, end);
+        }
+        keys[slot] = pool == null ? SourceAnalyzer.substring(text, start, end) : pool.intern(text, start, end, hash);
+        hashes[slot] = hash;
+        lines[slot] = NO_LINES;
+        size++;
+        return slot;
+    }
+
+    /**
+     * Internal method to compare a key with a range of characters.
+     */
+    private static boolean regionEquals(String key, CharSequence text, int start, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Internal method to double the capacity and re-insert every entry.
+     */
+    private void grow() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+        int[][] oldLines = lines;
+        int[] oldLineCounts = lineCounts;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) {
+                continue;
+            }
+            int slot = mix(oldHashes[i]) & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            hashes[slot] = oldHashes[i];
+            counts[slot] = oldCounts[i];
+            lines[slot] = oldLines[i];
+            lineCounts[slot] = oldLineCounts[i];
+        }
+    }
+
+    /**
+     * Internal method to allocate empty arrays of the given power of two capacity.
+     */
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        lines = new int[capacity][];
+        lineCounts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Spread the high bits of a hash into the low bits used for the slot.
+     */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
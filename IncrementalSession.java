@@ -0,0 +1,223 @@
+package cmsc256;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the identifiers of a Java source up to date while it is being edited.
+ * The session remembers the tokens of every line and the lexer state at each
+ * line start. An edit re-lexes from its first line only until the state at a
+ * line start matches the remembered one again, and the valid and invalid
+ * identifier maps are updated by removing the old tokens of those lines and
+ * adding the new ones. Invalid identifiers are kept against the lines they
+ * occur on rather than their line numbers, so an edit that adds or removes
+ * lines does not renumber the rest of the file; the numbers are worked out
+ * when the invalid identifiers are asked for, and kept until the next edit.
+ */
+public class IncrementalSession {
+    private final KeywordMatcher keywords;
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<String, Integer> validId = new HashMap<>();
+    // invalid identifier -> line it occurs on -> occurrences on that line
+    private final Map<String, Map<Line, Integer>> invalidId = new HashMap<>();
+    // the result of getInvalidJavaIdentifiers(), or null if there was an edit since
+    private Map<String, List<Integer>> invalidLines;
+
+    /**
+     * @param source the initial Java source text.
+     * @param keywords the reserved words to skip.
+     */
+    public IncrementalSession(CharSequence source, KeywordMatcher keywords) {
+        if (source == null || keywords == null) {
+            throw new IllegalArgumentException("Source and keywords cannot be null");
+        }
+        this.keywords = keywords;
+        for (String text : splitLines(source)) {
+            lines.add(new Line(text));
+        }
+        relex(0, lines.size());
+    }
+
+    /**
+     * Replace a range of lines with new text.
+     * To insert without replacing, pass endLine = startLine - 1; to delete, pass empty text.
+     * A line terminator at the end of the text starts one more, empty line.
+     * @param startLine the first line to replace, starting at 1.
+     * @param endLine the last line to replace.
+     * @param text the new text, split into lines at line terminators.
+     */
+    public void replaceLines(int startLine, int endLine, String text) {
+        if (startLine < 1 || endLine < startLine - 1 || endLine > lines.size()) {
+            throw new IllegalArgumentException("Invalid line range " + startLine + " to " + endLine);
+        }
+        int first = startLine - 1;
+        // Remove the replaced lines and their identifiers
+        List<Line> replaced = lines.subList(first, endLine);
+        for (Line line : replaced) {
+            removeTokens(line);
+        }
+        replaced.clear();
+        List<String> newLines = text == null || text.isEmpty() ? Collections.emptyList() : splitLines(text);
+        List<Line> added = new ArrayList<>(newLines.size());
+        for (String line : newLines) {
+            added.add(new Line(line));
+        }
+        lines.addAll(first, added);
+        invalidLines = null;
+        relex(first, first + newLines.size());
+    }
+
+    /**
+     * @return map of each valid identifier to the number of times it occurs.
+     */
+    public Map<String, Integer> getValidJavaIdentifiers() {
+        return Collections.unmodifiableMap(validId);
+    }
+
+    /**
+     * @return map of each invalid identifier to the line numbers it occurs on, in ascending order.
+     */
+    public Map<String, List<Integer>> getInvalidJavaIdentifiers() {
+        if (invalidLines == null) {
+            // number the lines once here rather than renumbering the later lines on every edit
+            for (int i = 0; i < lines.size(); i++) {
+                lines.get(i).number = i + 1;
+            }
+            Map<String, List<Integer>> result = new HashMap<>();
+            invalidId.forEach((word, occurrences) -> {
+                List<Integer> lineNumbers = new ArrayList<>(occurrences.size());
+                for (Line line : occurrences.keySet()) {
+                    lineNumbers.add(line.number);
+                }
+                Collections.sort(lineNumbers);
+                result.put(word, Collections.unmodifiableList(lineNumbers));
+            });
+            invalidLines = Collections.unmodifiableMap(result);
+        }
+        return invalidLines;
+    }
+
+    /**
+     * @return the number of lines in the source.
+     */
+    public int getLineCount() {
+        return lines.size();
+    }
+
+    /**
+     * Internal method to lex lines starting at index from.
+     * Every line before dirtyEnd is lexed; after that, lexing stops at the first
+     * line whose remembered starting state matches the state reached.
+     */
+    private void relex(int from, int dirtyEnd) {
+        JavaLexer.State state = from == 0 ? JavaLexer.State.CODE : lines.get(from - 1).endState;
+        for (int i = from; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            if (i >= dirtyEnd && line.startState == state) {
+                return; // the lexer state converged, the rest of the file is unchanged
+            }
+            removeTokens(line);
+            lex(line, i + 1, state);
+            addTokens(line);
+            state = line.endState;
+        }
+    }
+
+    /**
+     * Internal method to classify the tokens of one line.
+     */
+    private void lex(Line line, int lineNumber, JavaLexer.State state) {
+        List<String> valid = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        JavaLexer lexer = new JavaLexer(line.text, 0, line.text.length(), state, lineNumber);
+        while (lexer.next()) {
+            // classify in place, copying only the identifiers that are kept
+            switch (SourceAnalyzer.classify(line.text, lexer.getTokenStart(), lexer.getTokenEnd(), keywords)) {
+                case VALID:
+                    valid.add(lexer.getTokenText());
+                    break;
+                case INVALID:
+                    invalid.add(lexer.getTokenText());
+                    break;
+                default:
+                    break; // skip reserved words and numbers
+            }
+        }
+        line.startState = state;
+        line.endState = JavaLexer.stateAfterLineBreak(lexer.getState());
+        line.valid = valid.toArray(new String[0]);
+        line.invalid = invalid.toArray(new String[0]);
+    }
+
+    /**
+     * Internal method to add the identifiers of a lexed line to the maps.
+     */
+    private void addTokens(Line line) {
+        for (String word : line.valid) {
+            validId.merge(word, 1, Integer::sum);
+        }
+        for (String word : line.invalid) {
+            invalidId.computeIfAbsent(word, k -> new HashMap<>()).merge(line, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Internal method to remove the identifiers of a line from the maps, if it was lexed.
+     */
+    private void removeTokens(Line line) {
+        if (line.startState == null) {
+            return;
+        }
+        for (String word : line.valid) {
+            validId.computeIfPresent(word, (k, count) -> count == 1 ? null : count - 1);
+        }
+        for (String word : line.invalid) {
+            Map<Line, Integer> occurrences = invalidId.get(word);
+            occurrences.computeIfPresent(line, (k, count) -> count == 1 ? null : count - 1);
+            if (occurrences.isEmpty()) {
+                invalidId.remove(word);
+            }
+        }
+        line.startState = null;
+    }
+
+    /**
+     * Internal method to split text into lines at \n, \r\n or \r, the same way the lexer counts lines.
+     */
+    private static List<String> splitLines(CharSequence text) {
+        List<String> result = new ArrayList<>();
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            if (ch == '\n' || ch == '\r') {
+                result.add(text.subSequence(start, i).toString());
+                if (ch == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        result.add(text.subSequence(start, length).toString());
+        return result;
+    }
+
+    /**
+     * One line of the source with the tokens found on it.
+     */
+    private static final class Line {
+        private final String text;
+        private JavaLexer.State startState; // null until the line is lexed
+        private JavaLexer.State endState;
+        private String[] valid;
+        private String[] invalid;
+        private int number; // the line number, only up to date in getInvalidJavaIdentifiers()
+
+        private Line(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package cmsc256;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+
+/**
+ * Streaming lexer that walks Java source code one character at a time and
+ * reports the word tokens found outside of comments and literals.
+ * A word token is a run of characters that are not whitespace, not one of the
+ * delimiters and operators { } ( ) [ ] , . ; + - * / % = &lt; &gt; and not a quote.
+ * Tokens are reported as offsets into the input so no intermediate strings are built.
+ * Over an AsciiCharSequence, the lexer skips comments, literals and indentation
+ * eight bytes at a time, testing a long for the bytes that end the run (SWAR).
+ * The Vector API would test more bytes per step, but it is still an incubator
+ * module that must be added with --add-modules when compiling and running.
+ */
+public class JavaLexer {
+
+    /**
+     * The lexical context the lexer is in at a given position.
+     */
+    public enum State { CODE, STRING, CHAR, LINE_COMMENT, BLOCK_COMMENT, TEXT_BLOCK }
+
+    // Characters below 128 that can be part of a word token
+    private static final boolean[] WORD_CHARS = new boolean[128];
+
+    static {
+        for (char ch = '!'; ch < 127; ch++) {
+            WORD_CHARS[ch] = true;
+        }
+        for (char ch : "{}()[],.;+-*/%=<>\"'".toCharArray()) {
+            WORD_CHARS[ch] = false;
+        }
+    }
+
+    // Every byte of a long set to a character, for finding that character eight bytes at a time
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long SPACES = broadcast(' ');
+    private static final long TABS = broadcast('\t');
+    private static final long LINE_FEEDS = broadcast('\n');
+    private static final long RETURNS = broadcast('\r');
+    private static final long STARS = broadcast('*');
+    private static final long QUOTES = broadcast('"');
+    private static final long APOSTROPHES = broadcast('\'');
+    private static final long BACKSLASHES = broadcast('\\');
+
+    private final CharSequence input;
+    private final ByteBuffer bytes; // the bytes of an ASCII input, or null
+    private final int bytesOffset;
+    private final int end;
+    private int pos;
+    private int line;
+    private int lineStart;
+    private State state;
+
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenLine;
+    private int tokenColumn;
+
+    public JavaLexer(CharSequence input) {
+        this(input, 0, input.length(), State.CODE, 1);
+    }
+
+    /**
+     * Creates a lexer over part of the input.
+     * @param input the source text.
+     * @param from offset of the first character to lex, expected to be a line start.
+     * @param to offset one past the last character to lex.
+     * @param initialState the state the lexer is in at from.
+     * @param firstLine the line number of the line starting at from.
+     */
+    public JavaLexer(CharSequence input, int from, int to, State initialState, int firstLine) {
+        if (input == null || initialState == null) {
+            throw new IllegalArgumentException("Input and initial state cannot be null");
+        }
+        if (from < 0 || to > input.length() || from > to) {
+            throw new IllegalArgumentException("Invalid range " + from + " to " + to);
+        }
+        this.input = input;
+        if (input instanceof AsciiCharSequence) {
+            AsciiCharSequence ascii = (AsciiCharSequence) input;
+            this.bytes = ascii.buffer().duplicate().order(ByteOrder.BIG_ENDIAN);
+            this.bytesOffset = ascii.offset();
+        } else {
+            this.bytes = null;
+            this.bytesOffset = 0;
+        }
+        this.end = to;
+        this.pos = from;
+        this.lineStart = from;
+        this.line = firstLine;
+        this.state = initialState;
+    }
+
+    public JavaLexer(Reader reader) throws IOException {
+        this(readFully(reader));
+    }
+
+    /**
+     * Advance to the next word token.
+     * @return true if a token was found, false at the end of the input.
+     */
+    public boolean next() {
+        final CharSequence in = input;
+        while (pos < end) {
+            char ch = in.charAt(pos);
+            if (ch == '\n' || ch == '\r') {
+                newLine(ch);
+                continue;
+            }
+            switch (state) {
+                case CODE:
+                    if (ch < 128 ? WORD_CHARS[ch] : !Character.isWhitespace(ch)) {
+                        // Scan the whole token
+                        tokenStart = pos;
+                        tokenLine = line;
+                        tokenColumn = pos - lineStart + 1;
+                        pos++;
+                        while (pos < end && isWordChar(in.charAt(pos))) {
+                            pos++;
+                        }
+                        tokenEnd = pos;
+                        return true;
+                    }
+                    pos++;
+                    if (ch == '/' && pos < end) {
+                        char next = in.charAt(pos);
+                        if (next == '/') {
+                            state = State.LINE_COMMENT;
+                            pos++;
+                        } else if (next == '*') {
+                            state = State.BLOCK_COMMENT;
+                            pos++;
+                        }
+                    } else if (ch == '"') {
+                        if (pos + 1 < end && in.charAt(pos) == '"' && in.charAt(pos + 1) == '"') {
+                            state = State.TEXT_BLOCK;
+                            pos += 2;
+                        } else {
+                            state = State.STRING;
+                        }
+                    } else if (ch == '\'') {
+                        state = State.CHAR;
+                    } else if (ch == ' ' || ch == '\t') {
+                        pos = skipBlanks(pos);
+                    }
+                    break;
+                case STRING:
+                case CHAR:
+                    pos++;
+                    if (ch == '\\') {
+                        skipEscaped();
+                    } else if (ch == (state == State.STRING ? '"' : '\'')) {
+                        state = State.CODE;
+                    } else {
+                        pos = skipUntil(pos, state == State.STRING ? QUOTES : APOSTROPHES, BACKSLASHES);
+                    }
+                    break;
+                case LINE_COMMENT:
+                    pos = skipUntil(pos + 1, LINE_FEEDS, LINE_FEEDS);
+                    break;
+                case BLOCK_COMMENT:
+                    pos++;
+                    if (ch == '*' && pos < end && in.charAt(pos) == '/') {
+                        state = State.CODE;
+                        pos++;
+                    } else {
+                        pos = skipUntil(pos, STARS, STARS);
+                    }
+                    break;
+                case TEXT_BLOCK:
+                    pos++;
+                    if (ch == '\\') {
+                        skipEscaped();
+                    } else if (ch == '"' && pos + 1 < end
+                            && in.charAt(pos) == '"' && in.charAt(pos + 1) == '"') {
+                        state = State.CODE;
+                        pos += 2;
+                    } else {
+                        pos = skipUntil(pos, QUOTES, BACKSLASHES);
+                    }
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return offset of the first character of the current token.
+     */
+    public int getTokenStart() {
+        return tokenStart;
+    }
+
+    /**
+     * @return offset one past the last character of the current token.
+     */
+    public int getTokenEnd() {
+        return tokenEnd;
+    }
+
+    /**
+     * @return the line number of the current token, starting at 1.
+     */
+    public int getTokenLine() {
+        return tokenLine;
+    }
+
+    /**
+     * @return the column of the current token, starting at 1.
+     */
+    public int getTokenColumn() {
+        return tokenColumn;
+    }
+
+    /**
+     * @return the current token as a string.
+     */
+    public String getTokenText() {
+        return SourceAnalyzer.substring(input, tokenStart, tokenEnd);
+    }
+
+    /**
+     * @return the input the lexer reads from.
+     */
+    public CharSequence getInput() {
+        return input;
+    }
+
+    /**
+     * @return the state at the current position.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the line number at the current position.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the offset of the next character to be read.
+     */
+    public int getPosition() {
+        return pos;
+    }
+
+    /**
+     * Test if a character can be part of a word token.
+     */
+    public static boolean isWordChar(char ch) {
+        return ch < 128 ? WORD_CHARS[ch] : !Character.isWhitespace(ch);
+    }
+
+    /**
+     * Return the state a line break leaves the lexer in when starting from state.
+     * Only block comments and text blocks continue onto the next line.
+     */
+    public static State stateAfterLineBreak(State state) {
+        return state == State.BLOCK_COMMENT || state == State.TEXT_BLOCK ? state : State.CODE;
+    }
+
+    /**
+     * Internal method to skip ahead, eight bytes at a time, to the first line
+     * terminator or one of two other characters at or after from.
+     * Without ASCII bytes, or when fewer than eight bytes are left, it stops early
+     * and the characters are read one at a time.
+     */
+    private int skipUntil(int from, long first, long second) {
+        if (bytes == null) {
+            return from;
+        }
+        int i = from;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            long word = bytes.getLong(bytesOffset + i);
+            long found = zeroBytes(word ^ first) | zeroBytes(word ^ second)
+                    | zeroBytes(word ^ LINE_FEEDS) | zeroBytes(word ^ RETURNS);
+            if (found != 0) {
+                // big-endian, so the first byte is the most significant
+                return i + (Long.numberOfLeadingZeros(found) >>> 3);
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Internal method to skip ahead, eight bytes at a time, past spaces and tabs starting at from.
+     */
+    private int skipBlanks(int from) {
+        if (bytes == null) {
+            return from;
+        }
+        int i = from;
+        for (; i + Long.BYTES <= end; i += Long.BYTES) {
+            long word = bytes.getLong(bytesOffset + i);
+            long other = ~(zeroBytes(word ^ SPACES) | zeroBytes(word ^ TABS)) & HIGH_BITS;
+            if (other != 0) {
+                return i + (Long.numberOfLeadingZeros(other) >>> 3);
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Internal method to set the high bit of each byte that is zero, and only of those.
+     */
+    private static long zeroBytes(long word) {
+        return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+    }
+
+    /**
+     * Internal method to repeat a character in every byte of a long.
+     */
+    private static long broadcast(char ch) {
+        return 0x0101010101010101L * ch;
+    }
+
+    /**
+     * Internal method to consume a line terminator, treating \r\n as one.
+     */
+    private void newLine(char ch) {
+        pos++;
+        if (ch == '\r' && pos < end && input.charAt(pos) == '\n') {
+            pos++;
+        }
+        line++;
+        lineStart = pos;
+        state = stateAfterLineBreak(state);
+    }
+
+    /**
+     * Internal method to skip the character following a backslash, unless it ends the line.
+     */
+    private void skipEscaped() {
+        if (pos < end) {
+            char next = input.charAt(pos);
+            if (next != '\n' && next != '\r') {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Internal method to read all characters from a reader.
+     */
+    private static CharSequence readFully(Reader reader) throws IOException {
+        CharBuffer buffer = CharBuffer.allocate(8192);
+        while (reader.read(buffer) != -1) {
+            if (!buffer.hasRemaining()) {
+                CharBuffer larger = CharBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,78 @@
+package cmsc256;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide cache of loaded keyword files.
+ * Each keyword file is read once and the resulting KeywordSet is shared by
+ * every validator using it. An entry is reloaded only when the modification
+ * time or size of its file changes.
+ */
+public final class KeywordCache {
+    private static final ConcurrentMap<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private KeywordCache() {
+    }
+
+    /**
+     * Return the keywords of a file, loading them if they are not cached or the file changed.
+     * @param keywordFile the keyword file.
+     * @return the shared keyword set.
+     * @throws FileNotFoundException if the file does not exist.
+     */
+    public static KeywordSet get(File keywordFile) throws FileNotFoundException {
+        if (!keywordFile.exists()) {
+            throw new FileNotFoundException(keywordFile.getPath());
+        }
+        String key = keywordFile.getAbsoluteFile().toPath().normalize().toString();
+        long modified = keywordFile.lastModified();
+        long size = keywordFile.length();
+
+        Entry entry = CACHE.get(key);
+        if (entry != null && entry.matches(modified, size)) {
+            return entry.keywords;
+        }
+        try {
+            // compute() lets only one thread load a given file at a time
+            return CACHE.compute(key, (k, old) -> {
+                if (old != null && old.matches(modified, size)) {
+                    return old;
+                }
+                try {
+                    return new Entry(modified, size, KeywordSet.load(keywordFile));
+                } catch (FileNotFoundException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).keywords;
+        } catch (UncheckedIOException e) {
+            throw (FileNotFoundException) e.getCause();
+        }
+    }
+
+    /**
+     * Remove every cached keyword set.
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    private static final class Entry {
+        private final long modified;
+        private final long size;
+        private final KeywordSet keywords;
+
+        private Entry(long modified, long size, KeywordSet keywords) {
+            this.modified = modified;
+            this.size = size;
+            this.keywords = keywords;
+        }
+
+        private boolean matches(long modified, long size) {
+            return this.modified == modified && this.size == size;
+        }
+    }
+}
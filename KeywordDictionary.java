@@ -0,0 +1,150 @@
+package cmsc256;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * A keyword list that can be changed while validators are using it.
+ * The current keywords are an immutable KeywordSet published through an
+ * atomic reference. Readers take a snapshot without locking and keep using
+ * it for a whole scan, so they never see a half updated tree. Updates copy
+ * the keywords, build a new set and swap it in with compare-and-set,
+ * retrying if another update won the race.
+ */
+public final class KeywordDictionary {
+    private final AtomicReference<KeywordSet> current;
+
+    /**
+     * @param keywords the initial keywords.
+     */
+    public KeywordDictionary(KeywordSet keywords) {
+        if (keywords == null) {
+            throw new IllegalArgumentException("Keywords cannot be null");
+        }
+        this.current = new AtomicReference<>(keywords);
+    }
+
+    /**
+     * Create a dictionary holding the keywords of a keyword file.
+     * @param keywordFile the file to read.
+     * @return the new dictionary.
+     * @throws FileNotFoundException if the file does not exist.
+     */
+    public static KeywordDictionary load(File keywordFile) throws FileNotFoundException {
+        return new KeywordDictionary(KeywordSet.load(keywordFile));
+    }
+
+    /**
+     * @return the current keywords; the snapshot does not change when the dictionary is updated.
+     */
+    public KeywordSet snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Test if a word is one of the current keywords.
+     * @param word the word to look up.
+     * @return true if the word is a keyword.
+     */
+    public boolean contains(String word) {
+        return current.get().contains(word);
+    }
+
+    /**
+     * Add keywords.
+     * @param words the keywords to add.
+     * @return the snapshot published by this update.
+     */
+    public KeywordSet add(String... words) {
+        return add(Arrays.asList(words));
+    }
+
+    /**
+     * Add keywords.
+     * @param words the keywords to add.
+     * @return the snapshot published by this update.
+     */
+    public KeywordSet add(Collection<String> words) {
+        return update(keywords -> {
+            Set<String> changed = keywordsOf(keywords);
+            return changed.addAll(words) ? KeywordSet.of(changed) : keywords;
+        });
+    }
+
+    /**
+     * Remove keywords.
+     * @param words the keywords to remove.
+     * @return the snapshot published by this update.
+     */
+    public KeywordSet remove(String... words) {
+        return remove(Arrays.asList(words));
+    }
+
+    /**
+     * Remove keywords.
+     * @param words the keywords to remove.
+     * @return the snapshot published by this update.
+     */
+    public KeywordSet remove(Collection<String> words) {
+        return update(keywords -> {
+            Set<String> changed = keywordsOf(keywords);
+            return changed.removeAll(words) ? KeywordSet.of(changed) : keywords;
+        });
+    }
+
+    /**
+     * Replace every keyword.
+     * @param keywords the new keywords.
+     * @return the snapshot that was replaced.
+     */
+    public KeywordSet replace(KeywordSet keywords) {
+        if (keywords == null) {
+            throw new IllegalArgumentException("Keywords cannot be null");
+        }
+        return current.getAndSet(keywords);
+    }
+
+    /**
+     * Replace every keyword with the contents of a keyword file.
+     * The file is read before the swap, so readers keep the old keywords until it is loaded.
+     * @param keywordFile the file to read.
+     * @return the snapshot published by this update.
+     * @throws FileNotFoundException if the file does not exist.
+     */
+    public KeywordSet reload(File keywordFile) throws FileNotFoundException {
+        KeywordSet keywords = KeywordSet.load(keywordFile);
+        current.set(keywords);
+        return keywords;
+    }
+
+    /**
+     * Internal method to apply a copy-on-write change, retrying until no other update interferes.
+     * The change may run more than once and must not modify the snapshot it is given.
+     */
+    private KeywordSet update(UnaryOperator<KeywordSet> change) {
+        while (true) {
+            KeywordSet old = current.get();
+            KeywordSet updated = change.apply(old);
+            if (updated == old || current.compareAndSet(old, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Internal method to copy every keyword of a snapshot, including those not in its matcher, into a new set.
+     */
+    private static Set<String> keywordsOf(KeywordSet keywords) {
+        Set<String> words = new TreeSet<>();
+        for (String word : keywords.tree()) {
+            words.add(word);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,247 @@
+package cmsc256;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Immutable keyword set compiled from a keyword list for fast membership tests.
+ * Keywords are stored in an open-addressed hash table that uses the same hash as
+ * String.hashCode(), so a token can be looked up either as a String (using its
+ * cached hash) or as a range of characters in the input without creating a String.
+ * A bit mask of the keyword lengths rejects most identifiers before hashing.
+ */
+public final class KeywordMatcher {
+    private final String[] keywords;
+    private final int[] slots; // index into keywords plus one, 0 for an empty slot
+    private final int mask;
+    private final long lengths; // bit n is set when a keyword has length n, bit 63 for 63 and longer
+    private volatile byte[] fingerprint; // computed on first use; racing threads compute the same value
+
+    private static final int SNAPSHOT_MAGIC = 0x564B5753; // "VKWS"
+    private static final int SNAPSHOT_VERSION = 1;
+    // Limits on what a snapshot may claim, so a corrupt one fails instead of exhausting memory
+    static final int MAX_SNAPSHOT_KEYWORDS = 1 << 20;
+    static final int MAX_KEYWORD_BYTES = 1 << 16;
+
+    private KeywordMatcher(String[] keywords, int[] slots, long lengths) {
+        this.keywords = keywords;
+        this.slots = slots;
+        this.mask = slots.length - 1;
+        this.lengths = lengths;
+    }
+
+    private KeywordMatcher(String[] keywords) {
+        this.keywords = keywords;
+        int capacity = Integer.highestOneBit(Math.max(4, keywords.length * 4) - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        long lengthBits = 0;
+        for (int i = 0; i < keywords.length; i++) {
+            String keyword = keywords[i];
+            lengthBits |= lengthBit(keyword.length());
+            int slot = mix(keyword.hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = i + 1;
+        }
+        this.lengths = lengthBits;
+    }
+
+    /**
+     * Compile a matcher from a collection of keywords; duplicates are ignored.
+     * @param keywords the keywords to match.
+     * @return the compiled matcher.
+     */
+    public static KeywordMatcher of(Collection<String> keywords) {
+        return new KeywordMatcher(new TreeSet<>(keywords).toArray(new String[0]));
+    }
+
+    /**
+     * Read a matcher saved by writeSnapshot(), without sorting or hashing the keywords again.
+     * The snapshot is checked before it is used: the keywords must be sorted and
+     * unique, and the hash table must hold each keyword once, where a lookup
+     * finds it, with at least one empty slot so that a miss ends.
+     * @param in the source.
+     * @return the matcher.
+     * @throws IOException if reading fails or the data is not a valid keyword snapshot.
+     */
+    public static KeywordMatcher readSnapshot(DataInput in) throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readByte() != SNAPSHOT_VERSION) {
+            throw new IOException("Not a keyword snapshot in a supported format");
+        }
+        String[] keywords = new String[ResultCodec.readLength(in, MAX_SNAPSHOT_KEYWORDS)];
+        for (int i = 0; i < keywords.length; i++) {
+            keywords[i] = ResultCodec.readString(in, MAX_KEYWORD_BYTES);
+            if (i > 0 && keywords[i - 1].compareTo(keywords[i]) >= 0) {
+                throw new IOException("Corrupt keyword snapshot: keywords are not sorted and unique");
+            }
+        }
+        int[] slots = new int[ResultCodec.readLength(in, MAX_SNAPSHOT_KEYWORDS * 4)];
+        if (Integer.bitCount(slots.length) != 1 || slots.length <= keywords.length) {
+            throw new IOException("Corrupt keyword snapshot: bad table size " + slots.length);
+        }
+        int used = 0;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = ResultCodec.readVarInt(in);
+            if (slots[i] > keywords.length) {
+                throw new IOException("Corrupt keyword snapshot: bad slot " + slots[i]);
+            }
+            if (slots[i] != 0) {
+                used++;
+            }
+        }
+        if (used > keywords.length) {
+            throw new IOException("Corrupt keyword snapshot: table has no empty slot for misses");
+        }
+        KeywordMatcher matcher = new KeywordMatcher(keywords, slots, in.readLong());
+        // with an empty slot every lookup ends; each keyword must then be found in a slot of its own
+        long lengthBits = 0;
+        for (String keyword : keywords) {
+            lengthBits |= lengthBit(keyword.length());
+            if (!matcher.contains(keyword)) {
+                throw new IOException("Corrupt keyword snapshot: " + keyword + " is not in its slot");
+            }
+        }
+        if (used != keywords.length || lengthBits != matcher.lengths) {
+            throw new IOException("Corrupt keyword snapshot: table does not match the keywords");
+        }
+        return matcher;
+    }
+
+    /**
+     * Save the compiled matcher, including its hash table, for readSnapshot().
+     * @param out the destination.
+     * @throws IOException if writing fails.
+     */
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeByte(SNAPSHOT_VERSION);
+        ResultCodec.writeVarInt(out, keywords.length);
+        for (String keyword : keywords) {
+            ResultCodec.writeString(out, keyword);
+        }
+        ResultCodec.writeVarInt(out, slots.length);
+        for (int slot : slots) {
+            ResultCodec.writeVarInt(out, slot);
+        }
+        out.writeLong(lengths);
+    }
+
+    /**
+     * Test if a word is one of the keywords.
+     * @param word the word to look up.
+     * @return true if the word is a keyword.
+     */
+    public boolean contains(String word) {
+        int length = word.length();
+        if ((lengths & lengthBit(length)) == 0) {
+            return false;
+        }
+        int slot = mix(word.hashCode()) & mask;
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            if (keywords[entry - 1].equals(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Test if a range of characters is one of the keywords.
+     * @param text the characters to look in.
+     * @param start offset of the first character of the word.
+     * @param end offset one past the last character of the word.
+     * @return true if the word is a keyword.
+     */
+    public boolean contains(CharSequence text, int start, int end) {
+        int length = end - start;
+        if ((lengths & lengthBit(length)) == 0) {
+            return false;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int slot = mix(hash) & mask;
+        for (int entry; (entry = slots[slot]) != 0; slot = (slot + 1) & mask) {
+            if (regionEquals(keywords[entry - 1], text, start, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of keywords.
+     */
+    public int size() {
+        return keywords.length;
+    }
+
+    /**
+     * Return a SHA-256 hash of the sorted keywords, identifying this keyword set.
+     * @return the 32 byte hash.
+     */
+    public byte[] fingerprint() {
+        byte[] hash = fingerprint;
+        if (hash == null) {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e); // every JVM provides SHA-256
+            }
+            for (String keyword : keywords) {
+                digest.update(keyword.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            hash = digest.digest();
+            fingerprint = hash;
+        }
+        return hash.clone();
+    }
+
+    /**
+     * @return the keywords in sorted order.
+     */
+    public String[] getKeywords() {
+        return Arrays.copyOf(keywords, keywords.length);
+    }
+
+    /**
+     * Internal method to compare a keyword with a range of characters.
+     */
+    private static boolean regionEquals(String keyword, CharSequence text, int start, int length) {
+        if (keyword.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyword.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spread the high bits of a hash into the low bits used for the slot.
+     */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Return the bit of the length mask for words of the given length.
+     */
+    private static long lengthBit(int length) {
+        return 1L << Math.min(length, 63);
+    }
+}
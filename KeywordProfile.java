@@ -0,0 +1,120 @@
+package cmsc256;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A named list of reserved words that can be combined with others into a
+ * KeywordProfiles dictionary. The Java version profiles are cumulative: each
+ * includes the words of the version before it. Operators are kept apart from
+ * the words so that only those the lexer can return as tokens are looked up.
+ */
+public enum KeywordProfile {
+    // the keywords and literals of the first Java release
+    JAVA_1_0(null, false, false,
+            "abstract", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue",
+            "default", "do", "double", "else", "extends", "false", "final", "finally", "float", "for", "goto",
+            "if", "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "null",
+            "package", "private", "protected", "public", "return", "short", "static", "super", "switch",
+            "synchronized", "this", "throw", "throws", "transient", "true", "try", "void", "volatile", "while"),
+    JAVA_1_2(JAVA_1_0, false, false, "strictfp"),
+    JAVA_1_4(JAVA_1_2, false, false, "assert"),
+    JAVA_5(JAVA_1_4, false, false, "enum"),
+    JAVA_9(JAVA_5, false, false, "_"),
+    // words that are only reserved in some positions, up to Java 17
+    JAVA_CONTEXTUAL(null, false, false, "var", "yield", "record", "sealed", "permits", "non-sealed"),
+    // words that are only reserved in module declarations
+    JAVA_MODULE(null, false, false,
+            "module", "open", "requires", "transitive", "exports", "opens", "to", "uses", "provides", "with"),
+    JAVA_OPERATORS(null, true, false,
+            "=", "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<=", ">>=", ">>>=", "==", "!=", "<", ">",
+            "<=", ">=", "||", "&&", "!", "|", "^", "&", "~", "<<", ">>", ">>>", "+", "-", "*", "/", "%",
+            "++", "--", "?", ":", "::", "->"),
+    // SQL reserved words, also added in upper case, for source that embeds queries
+    SQL(null, false, true,
+            "select", "from", "where", "insert", "into", "values", "update", "set", "delete", "create", "alter",
+            "drop", "table", "view", "index", "primary", "foreign", "key", "references", "join", "inner", "outer",
+            "left", "right", "full", "cross", "on", "using", "group", "by", "order", "having", "limit", "offset",
+            "union", "intersect", "except", "all", "distinct", "as", "and", "or", "not", "null", "is", "in",
+            "between", "like", "exists", "case", "when", "then", "else", "end", "asc", "desc", "commit",
+            "rollback", "grant", "revoke");
+
+    private final Set<String> words;
+    private final boolean operators;
+
+    KeywordProfile(KeywordProfile base, boolean operators, boolean upperCase, String... words) {
+        Set<String> all = new LinkedHashSet<>();
+        if (base != null) {
+            all.addAll(base.words);
+        }
+        all.addAll(Arrays.asList(words));
+        if (upperCase) {
+            for (String word : words) {
+                all.add(word.toUpperCase(Locale.ROOT));
+            }
+        }
+        this.words = Collections.unmodifiableSet(all);
+        this.operators = operators;
+    }
+
+    /**
+     * @return the words of this profile, including those of the profiles it extends.
+     */
+    public Set<String> getWords() {
+        return words;
+    }
+
+    /**
+     * @return true if this profile lists operators rather than words.
+     */
+    public boolean isOperators() {
+        return operators;
+    }
+
+    /**
+     * Find a profile by a name such as java17, java1.4, contextual, module, operators or sql.
+     * A Java version selects the newest version profile not after it.
+     * @param name the profile name, ignoring case.
+     * @return the profile.
+     * @throws IllegalArgumentException if no profile has the name.
+     */
+    public static KeywordProfile parse(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT);
+        switch (key) {
+            case "contextual":
+                return JAVA_CONTEXTUAL;
+            case "module":
+                return JAVA_MODULE;
+            case "operators":
+                return JAVA_OPERATORS;
+            case "sql":
+                return SQL;
+            default:
+                break;
+        }
+        if (key.startsWith("java")) {
+            String version = key.substring(4);
+            try {
+                int feature = version.startsWith("1.")
+                        ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+                if (feature >= 9) {
+                    return JAVA_9;
+                } else if (feature >= 5) {
+                    return JAVA_5;
+                } else if (feature == 4) {
+                    return JAVA_1_4;
+                } else if (feature >= 2) {
+                    return JAVA_1_2;
+                } else if (feature >= 0) {
+                    return JAVA_1_0;
+                }
+            } catch (NumberFormatException e) {
+                // fall through to the error below
+            }
+        }
+        throw new IllegalArgumentException("Unknown keyword profile " + name);
+    }
+}
@@ -0,0 +1,193 @@
+package cmsc256;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A combination of keyword profiles compiled into one KeywordMatcher.
+ * Only words the lexer can return as tokens are compiled in: an operator
+ * such as += or &gt;&gt;&gt;= contains a delimiter the lexer splits on, so it is
+ * kept in the operator list but never looked up. The compiled form can be
+ * saved and read back without parsing a keyword file or hashing the words again.
+ */
+public final class KeywordProfiles {
+    private static final int MAGIC = 0x564B5750; // "VKWP"
+    private static final int VERSION = 1;
+    private static final int MAX_PROFILE_NAME_BYTES = 64;
+
+    private final Set<KeywordProfile> profiles;
+    private final String[] operators; // sorted, including those the lexer cannot produce
+    private final KeywordMatcher matcher;
+
+    private KeywordProfiles(Set<KeywordProfile> profiles, String[] operators, KeywordMatcher matcher) {
+        this.profiles = profiles;
+        this.operators = operators;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Combine and compile profiles.
+     * @param profiles the profiles to combine.
+     * @return the compiled profiles.
+     */
+    public static KeywordProfiles compile(KeywordProfile... profiles) {
+        return compile(Arrays.asList(profiles));
+    }
+
+    /**
+     * Combine and compile profiles.
+     * @param profiles the profiles to combine.
+     * @return the compiled profiles.
+     * @throws IllegalArgumentException if no profile is given.
+     */
+    public static KeywordProfiles compile(Collection<KeywordProfile> profiles) {
+        if (profiles.isEmpty()) {
+            throw new IllegalArgumentException("At least one keyword profile is needed");
+        }
+        Set<String> words = new TreeSet<>();
+        Set<String> operators = new TreeSet<>();
+        for (KeywordProfile profile : profiles) {
+            (profile.isOperators() ? operators : words).addAll(profile.getWords());
+        }
+        Set<String> lookups = new TreeSet<>();
+        for (String word : words) {
+            if (isToken(word)) {
+                lookups.add(word);
+            }
+        }
+        for (String operator : operators) {
+            if (isToken(operator)) {
+                lookups.add(operator);
+            }
+        }
+        return new KeywordProfiles(EnumSet.copyOf(profiles), operators.toArray(new String[0]),
+                KeywordMatcher.of(lookups));
+    }
+
+    /**
+     * Compile profiles given by name, such as "java17,contextual,sql".
+     * @param names profile names separated by commas.
+     * @return the compiled profiles.
+     * @throws IllegalArgumentException if a name is not a profile.
+     */
+    public static KeywordProfiles parse(String names) {
+        Set<KeywordProfile> profiles = EnumSet.noneOf(KeywordProfile.class);
+        for (String name : names.split(",")) {
+            profiles.add(KeywordProfile.parse(name));
+        }
+        return compile(profiles);
+    }
+
+    /**
+     * Read profiles saved by write().
+     * @param in the source.
+     * @return the compiled profiles.
+     * @throws IOException if reading fails or the data is not saved profiles.
+     */
+    public static KeywordProfiles read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not keyword profiles in a supported format");
+        }
+        // sizes are checked with the limits of a keyword snapshot, so corrupt data fails instead of exhausting memory
+        Set<KeywordProfile> profiles = EnumSet.noneOf(KeywordProfile.class);
+        int profileCount = ResultCodec.readLength(in, KeywordProfile.values().length);
+        if (profileCount == 0) {
+            throw new IOException("Corrupt keyword profiles: no profile is listed");
+        }
+        for (int i = 0; i < profileCount; i++) {
+            String name = ResultCodec.readString(in, MAX_PROFILE_NAME_BYTES);
+            try {
+                profiles.add(KeywordProfile.valueOf(name));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown keyword profile " + name);
+            }
+        }
+        String[] operators = new String[ResultCodec.readLength(in, KeywordMatcher.MAX_SNAPSHOT_KEYWORDS)];
+        for (int i = 0; i < operators.length; i++) {
+            operators[i] = ResultCodec.readString(in, KeywordMatcher.MAX_KEYWORD_BYTES);
+            // isOperator() searches the operators, so they must be sorted and unique
+            if (i > 0 && operators[i - 1].compareTo(operators[i]) >= 0) {
+                throw new IOException("Corrupt keyword profiles: operators are not sorted and unique");
+            }
+        }
+        return new KeywordProfiles(profiles, operators, KeywordMatcher.readSnapshot(in));
+    }
+
+    /**
+     * Save the profile names, the operators and the compiled matcher with its hash table.
+     * @param out the destination.
+     * @throws IOException if writing fails.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        ResultCodec.writeVarInt(out, profiles.size());
+        for (KeywordProfile profile : profiles) {
+            ResultCodec.writeString(out, profile.name());
+        }
+        ResultCodec.writeVarInt(out, operators.length);
+        for (String operator : operators) {
+            ResultCodec.writeString(out, operator);
+        }
+        matcher.writeSnapshot(out);
+    }
+
+    /**
+     * @return the profiles that were combined.
+     */
+    public Set<KeywordProfile> getProfiles() {
+        return EnumSet.copyOf(profiles);
+    }
+
+    /**
+     * @return the operators of the profiles in sorted order, including those that are never looked up.
+     */
+    public String[] getOperators() {
+        return operators.clone();
+    }
+
+    /**
+     * @param word a word or operator.
+     * @return true if it is one of the operators of the profiles.
+     */
+    public boolean isOperator(String word) {
+        return Arrays.binarySearch(operators, word) >= 0;
+    }
+
+    /**
+     * @return the matcher holding every word and operator the lexer can return.
+     */
+    public KeywordMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * @return a keyword set for the validators; its AVL tree is only built if it is asked for.
+     */
+    public KeywordSet toKeywordSet() {
+        return new KeywordSet(matcher);
+    }
+
+    /**
+     * Test if the lexer can return a word as one token, so looking it up can ever match.
+     * @param word a word or operator.
+     * @return true if the word is not empty and made only of word characters.
+     */
+    static boolean isToken(String word) {
+        if (word.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (!JavaLexer.isWordChar(word.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
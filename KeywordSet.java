@@ -0,0 +1,128 @@
+package cmsc256;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Scanner;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A keyword list loaded from a keyword file: the AVL tree used for the
+ * traversals and the KeywordMatcher compiled from it for lookups.
+ * The tree holds every keyword, but the matcher only holds those the lexer
+ * can return as tokens: an operator such as += is listed in the traversals
+ * but never looked up (see KeywordProfiles.isToken).
+ * Instances are shared between validators, so the tree is only handed out as a copy.
+ */
+public final class KeywordSet {
+    private AVLTree<String> tree; // built from the matcher on first use when created from a matcher alone
+    private final KeywordMatcher matcher;
+
+    public KeywordSet(AVLTree<String> tree, KeywordMatcher matcher) {
+        if (tree == null || matcher == null) {
+            throw new IllegalArgumentException("Keyword tree and matcher cannot be null");
+        }
+        this.tree = tree;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Create a keyword set from a compiled matcher. The AVL tree is only built if it is asked for,
+     * so validating with a matcher read from a snapshot never builds one. It holds the words of
+     * the matcher, so operators left out of the matcher are not in the traversals either.
+     * @param matcher the compiled keywords.
+     */
+    public KeywordSet(KeywordMatcher matcher) {
+        if (matcher == null) {
+            throw new IllegalArgumentException("Keyword matcher cannot be null");
+        }
+        this.matcher = matcher;
+    }
+
+    /**
+     * Read a keyword file with one keyword per line.
+     * @param keywordFile the file to read.
+     * @return the loaded keywords.
+     * @throws FileNotFoundException if the file does not exist.
+     */
+    public static KeywordSet load(File keywordFile) throws FileNotFoundException {
+        // Check if keyword file exists
+        if (!keywordFile.exists()) {
+            throw new FileNotFoundException(keywordFile.getPath());
+        }
+        // Read keyword file, sorting the keywords and dropping duplicates
+        SortedSet<String> keywords = new TreeSet<>();
+        try (Scanner in = new Scanner(keywordFile)) {
+            //while file still has a next line
+            while (in.hasNextLine()) {
+                // add line without spaces
+                keywords.add(in.nextLine().trim());
+            }
+        }
+        return of(keywords);
+    }
+
+    /**
+     * Build a keyword set from a collection of keywords; duplicates are ignored.
+     * Keywords the lexer cannot return as tokens are kept in the tree but left out of the matcher.
+     * @param keywords the keywords.
+     * @return the new keyword set.
+     */
+    public static KeywordSet of(Collection<String> keywords) {
+        SortedSet<String> sorted = new TreeSet<>(keywords);
+        // load the sorted keywords directly into a balanced tree and compile those that can match for lookups
+        AVLTree<String> tree = AVLTree.fromSorted(new ArrayList<>(sorted));
+        List<String> lookups = new ArrayList<>(sorted.size());
+        for (String keyword : sorted) {
+            if (KeywordProfiles.isToken(keyword)) {
+                lookups.add(keyword);
+            }
+        }
+        return new KeywordSet(tree, KeywordMatcher.of(lookups));
+    }
+
+    /**
+     * @return a copy of the keywords as an AVL tree; changing it does not change this set or its matcher.
+     */
+    public AVLTree<String> getTree() {
+        return tree().copy();
+    }
+
+    /**
+     * Internal method to get the shared tree, for callers in this package that only read it.
+     */
+    synchronized AVLTree<String> tree() {
+        if (tree == null) {
+            tree = AVLTree.fromSorted(Arrays.asList(matcher.getKeywords()));
+        }
+        return tree;
+    }
+
+    /**
+     * Test if a word is one of the keywords, including those left out of the matcher.
+     * @param word the word to look up.
+     * @return true if the word is a keyword.
+     */
+    public boolean contains(String word) {
+        return contains(matcher, tree(), word);
+    }
+
+    /**
+     * Internal method to look a word up in the matcher, and in the tree only if the matcher cannot hold it.
+     */
+    static boolean contains(KeywordMatcher matcher, AVLTree<String> tree, String word) {
+        // operators the lexer cannot return are only kept in the tree
+        return matcher.contains(word) || (!KeywordProfiles.isToken(word) && tree.find(word) != null);
+    }
+
+    /**
+     * @return the compiled keyword matcher.
+     */
+    public KeywordMatcher getMatcher() {
+        return matcher;
+    }
+}
@@ -0,0 +1,295 @@
+package cmsc256;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Validates many Java files with reading and scanning overlapped.
+ * The batch runs as a pipeline of stages: the calling thread finds the files
+ * and starts an asynchronous read of each into a pooled direct buffer, each
+ * completed read is queued and a scan task is handed to the executor, and the
+ * results are merged into a BatchReport. A file counts against the read-ahead
+ * limit from the start of its read until it is scanned, so the reader waits
+ * for the scanners instead of filling memory, and buffers are reused once
+ * their file is scanned. Files larger than a buffer are read by the scan task
+ * through SourceFile.readBytes, which maps large files.
+ * Scan tasks never wait on each other, so any executor works, whatever its
+ * size; one that rejects a task has the scan run on the reading thread.
+ * The reads and scans of every batch report to one ValidatorMetrics, which
+ * must accept reports from many threads, as CountingMetrics does. The read time
+ * of a pooled file runs from the start of its read until the read completes.
+ */
+public class PipelinedBatchValidator {
+    /** The default size of a pooled buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 256 << 10;
+
+    private final KeywordDictionary keywords;
+    private final Executor executor;
+    private final int readAhead;
+    private final int bufferSize;
+    private final ValidatorMetrics metrics;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param keywords the keyword dictionary; each batch uses its snapshot at the start of the batch.
+     * @param executor the executor running the scan tasks.
+     * @param readAhead the largest number of files read but not yet scanned.
+     * @param bufferSize the size of a pooled buffer; larger files are not pooled.
+     */
+    public PipelinedBatchValidator(KeywordDictionary keywords, Executor executor, int readAhead, int bufferSize) {
+        this(keywords, executor, readAhead, bufferSize, null);
+    }
+
+    /**
+     * @param keywords the keyword dictionary; each batch uses its snapshot at the start of the batch.
+     * @param executor the executor running the scan tasks.
+     * @param readAhead the largest number of files read but not yet scanned.
+     * @param bufferSize the size of a pooled buffer; larger files are not pooled.
+     * @param metrics the registry receiving the counts and timings of every file, or null for none.
+     */
+    public PipelinedBatchValidator(KeywordDictionary keywords, Executor executor, int readAhead, int bufferSize,
+                                   ValidatorMetrics metrics) {
+        if (keywords == null || executor == null) {
+            throw new IllegalArgumentException("Keywords and executor cannot be null");
+        }
+        if (readAhead <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("Read-ahead and buffer size must be positive");
+        }
+        this.keywords = keywords;
+        this.executor = executor;
+        this.readAhead = readAhead;
+        this.bufferSize = bufferSize;
+        this.metrics = metrics == null ? ValidatorMetrics.NOOP : metrics;
+    }
+
+    /**
+     * Create a validator reading four files ahead per processor.
+     * @param keywords the keyword dictionary; each batch uses its snapshot at the start of the batch.
+     * @param executor the executor running the scan tasks.
+     */
+    public PipelinedBatchValidator(KeywordDictionary keywords, Executor executor) {
+        this(keywords, executor, Runtime.getRuntime().availableProcessors() * 4, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Validate files and directories.
+     * @param paths Java files, or directories to search for .java files.
+     * @return the merged report.
+     * @throws IOException if a directory cannot be walked.
+     */
+    public BatchReport validate(Path... paths) throws IOException {
+        return validate(Arrays.asList(paths));
+    }
+
+    /**
+     * Validate files and directories. Batches may run at the same time and share the buffer pool.
+     * @param paths Java files, or directories to search for .java files.
+     * @return the merged report.
+     * @throws IOException if a directory cannot be walked.
+     */
+    public BatchReport validate(Collection<Path> paths) throws IOException {
+        List<Path> files = BatchValidator.findJavaFiles(paths);
+        Batch batch = new Batch(files.size(), keywords.snapshot().getMatcher());
+
+        // Read the files, waiting whenever the scans fall behind by the read-ahead limit
+        for (int i = 0; i < files.size(); i++) {
+            batch.readAhead.acquireUninterruptibly();
+            read(batch, files.get(i), i);
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                batch.scanned.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true; // the scans still hold the buffers, so wait for them
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<Path, ValidationResult> resultMap = new HashMap<>();
+        Map<Path, Exception> failureMap = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            if (batch.failures[i] != null) {
+                failureMap.put(files.get(i), batch.failures[i]);
+            } else {
+                resultMap.put(files.get(i), batch.results[i]);
+            }
+        }
+        return new BatchReport(resultMap, failureMap);
+    }
+
+    /**
+     * Internal method to start reading a file into a pooled buffer; its scan is dispatched once the read ends.
+     */
+    private void read(Batch batch, Path file, int index) {
+        long start = System.nanoTime();
+        AsynchronousFileChannel channel;
+        long size;
+        try {
+            channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException | RuntimeException e) {
+            dispatch(batch, new LoadedFile(file, index, null, e));
+            return;
+        }
+        try {
+            size = channel.size();
+        } catch (IOException e) {
+            close(channel);
+            dispatch(batch, new LoadedFile(file, index, null, e));
+            return;
+        }
+        if (size > bufferSize) {
+            // left for the scan task to read or map
+            close(channel);
+            dispatch(batch, new LoadedFile(file, index, null, null));
+            return;
+        }
+
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear().limit((int) size);
+        ByteBuffer target = buffer;
+        CompletionHandler<Integer, Void> handler = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer count, Void attachment) {
+                if (count >= 0 && target.hasRemaining()) {
+                    try {
+                        channel.read(target, target.position(), null, this);
+                    } catch (RuntimeException e) {
+                        failed(e, null);
+                    }
+                    return;
+                }
+                close(channel);
+                metrics.time(ValidatorMetrics.Timer.FILE_READ, System.nanoTime() - start);
+                target.flip();
+                dispatch(batch, new LoadedFile(file, index, target, null));
+            }
+
+            @Override
+            public void failed(Throwable cause, Void attachment) {
+                close(channel);
+                buffers.add(target);
+                dispatch(batch, new LoadedFile(file, index, null,
+                        cause instanceof Exception ? (Exception) cause : new IOException(cause)));
+            }
+        };
+        try {
+            channel.read(target, 0, null, handler);
+        } catch (RuntimeException e) {
+            handler.failed(e, null); // the read never started, so the handler will not be called
+        }
+    }
+
+    /**
+     * Internal method to queue a loaded file and hand a scan task for it to the executor.
+     */
+    private void dispatch(Batch batch, LoadedFile file) {
+        batch.loaded.add(file);
+        try {
+            executor.execute(() -> scanNext(batch));
+        } catch (RejectedExecutionException e) {
+            scanNext(batch);
+        }
+    }
+
+    /**
+     * Internal method run by a scan task: scan one queued file, then free its buffer and read-ahead permit.
+     */
+    private void scanNext(Batch batch) {
+        LoadedFile next = batch.loaded.poll(); // one file was queued for every task
+        try {
+            if (next.failure != null) {
+                batch.failures[next.index] = next.failure;
+            } else {
+                ByteBuffer bytes = next.bytes;
+                if (bytes == null) {
+                    long start = System.nanoTime();
+                    bytes = SourceFile.readBytes(next.file.toFile());
+                    metrics.time(ValidatorMetrics.Timer.FILE_READ, System.nanoTime() - start);
+                }
+                metrics.add(ValidatorMetrics.Counter.BYTES, bytes.limit());
+                // identifiers are copied out of the buffer, so it can be reused as soon as the scan is done
+                batch.results[next.index] = SourceAnalyzer.analyze(SourceFile.decode(bytes), batch.matcher,
+                        metrics, batch.pool);
+            }
+        } catch (IOException | RuntimeException e) {
+            batch.failures[next.index] = e;
+        } finally {
+            if (next.bytes != null) {
+                buffers.add(next.bytes);
+            }
+            batch.readAhead.release();
+            batch.scanned.countDown();
+        }
+    }
+
+    /**
+     * Internal method to close a channel whose read is finished or abandoned.
+     */
+    private static void close(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing was written, so there is nothing to lose
+        }
+    }
+
+    /**
+     * The state of one batch. Results are written by the scan tasks and read
+     * after the latch reaches zero, which orders the writes before the reads.
+     */
+    private final class Batch {
+        private final KeywordMatcher matcher;
+        private final IdentifierPool pool = new IdentifierPool();
+        private final Semaphore readAhead = new Semaphore(PipelinedBatchValidator.this.readAhead);
+        private final ConcurrentLinkedQueue<LoadedFile> loaded = new ConcurrentLinkedQueue<>();
+        private final CountDownLatch scanned;
+        private final ValidationResult[] results;
+        private final Exception[] failures;
+
+        private Batch(int fileCount, KeywordMatcher matcher) {
+            this.matcher = matcher;
+            this.scanned = new CountDownLatch(fileCount);
+            this.results = new ValidationResult[fileCount];
+            this.failures = new Exception[fileCount];
+        }
+    }
+
+    /**
+     * A file handed from the reader to a scan task: its bytes, or null for the
+     * task to read it, or the failure of its read.
+     */
+    private static final class LoadedFile {
+        private final Path file;
+        private final int index;
+        private final ByteBuffer bytes;
+        private final Exception failure;
+
+        private LoadedFile(Path file, int index, ByteBuffer bytes, Exception failure) {
+            this.file = file;
+            this.index = index;
+            this.bytes = bytes;
+            this.failure = failure;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package cmsc256;
 
 import java.io.FileNotFoundException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -30,5 +31,13 @@ public interface ProgramParserInterface {
     public default Map<String, List<Integer>> getInvalidJavaIdentifiers(){
         return null;
     }
+
+    // Getters left at their defaults return null, which counts as no identifiers
+    public default ValidationResult analyze() throws FileNotFoundException {
+        Map<String, Integer> valid = getValidJavaIdentifiers();
+        Map<String, List<Integer>> invalid = getInvalidJavaIdentifiers();
+        return new ValidationResult(valid == null ? Collections.emptyMap() : valid,
+                invalid == null ? Collections.emptyMap() : invalid);
+    }
     
 }
@@ -0,0 +1,235 @@
+package cmsc256;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * On-disk cache of validation results, so unchanged files are not lexed again.
+ * A result is stored in its own file named by a SHA-256 hash of the result
+ * format and analyzer versions, the keyword set and the file content, in the
+ * ResultCodec format. Reading a result touches its modification time, and when
+ * the directory grows past its size limit the least recently used results are deleted.
+ * Several processes may share one directory: results are written to a
+ * temporary file and moved into place, and files that disappear or are
+ * corrupt are treated as misses. A cache that cannot be read or written is
+ * skipped rather than failing the validation.
+ */
+public class ResultCache {
+    private static final String SUFFIX = ".vr";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final long STALE_TEMP_MILLIS = 60 * 60 * 1000;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong writtenSinceSweep = new AtomicLong();
+
+    /**
+     * Open a cache directory, creating it if needed.
+     * @param directory the directory holding the cached results.
+     * @param maxBytes the total size of results to keep.
+     * @throws IOException if the directory cannot be created.
+     */
+    public ResultCache(Path directory, long maxBytes) throws IOException {
+        if (directory == null || maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache directory cannot be null and the size limit must be positive");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * Return the cached result for some content, analyzing and caching it on a miss.
+     * @param content the bytes of the Java file between position 0 and the limit.
+     * @param keywords the keywords the result depends on.
+     * @param analyzer computes the result from the decoded content on a miss.
+     * @return the result.
+     */
+    public ValidationResult analyze(ByteBuffer content, KeywordMatcher keywords,
+                                    Function<CharSequence, ValidationResult> analyzer) {
+        String key = keyOf(content, keywords);
+        ValidationResult result = get(key);
+        if (result == null) {
+            result = analyzer.apply(SourceFile.decode(content));
+            put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Compute the cache key of some content validated against a keyword set.
+     * @param content the bytes of the Java file between position 0 and the limit.
+     * @param keywords the keywords the result depends on.
+     * @return the key, a hex SHA-256 hash.
+     */
+    public static String keyOf(ByteBuffer content, KeywordMatcher keywords) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM provides SHA-256
+        }
+        // results of an older lexer, classifier or encoding get new keys instead of being reused
+        digest.update((byte) ResultCodec.VERSION);
+        digest.update((byte) SourceAnalyzer.RULES_VERSION);
+        digest.update(keywords.fingerprint());
+        ByteBuffer bytes = content.duplicate();
+        bytes.position(0);
+        digest.update(bytes);
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+            hex[2 * i + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Look up a cached result.
+     * @param key the key from keyOf().
+     * @return the result, or null if it is not cached.
+     */
+    public ValidationResult get(String key) {
+        Path file = directory.resolve(key + SUFFIX);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            return null; // missing, or deleted by another process's eviction
+        }
+        ValidationResult result;
+        try {
+            result = ResultCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+        } catch (IOException e) {
+            deleteQuietly(file); // corrupt entry, analyze again
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // the result is still good; it may only be evicted sooner
+        }
+        return result;
+    }
+
+    /**
+     * Store a result, replacing any result with the same key.
+     * @param key the key from keyOf().
+     * @param result the result to store.
+     * @return true if the result was stored.
+     */
+    public boolean put(String key, ValidationResult result) {
+        Path temp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ResultCodec.write(result, new DataOutputStream(bytes));
+            temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+            Files.write(temp, bytes.toByteArray());
+            // Readers in other processes see either no file or a complete one
+            try {
+                Files.move(temp, directory.resolve(key + SUFFIX),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, directory.resolve(key + SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (writtenSinceSweep.addAndGet(bytes.size()) > maxBytes / 4) {
+                evict();
+            }
+            return true;
+        } catch (IOException e) {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Delete the least recently used results until the cache fits in its size limit,
+     * along with temporary files abandoned by crashed writers.
+     */
+    public synchronized void evict() {
+        writtenSinceSweep.set(0);
+        List<Path> entries = new ArrayList<>();
+        List<FileTime> times = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        long total = 0;
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (name.endsWith(SUFFIX)) {
+                        entries.add(file);
+                        times.add(attributes.lastModifiedTime());
+                        sizes.add(attributes.size());
+                        total += attributes.size();
+                    } else if (name.endsWith(TEMP_SUFFIX)
+                            && now - attributes.lastModifiedTime().toMillis() > STALE_TEMP_MILLIS) {
+                        deleteQuietly(file);
+                    }
+                } catch (NoSuchFileException e) {
+                    // removed by another process while listing
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            return;
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        // Oldest first; trim to 90% of the limit so eviction does not run on every write
+        List<Integer> order = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(times::get));
+        long target = maxBytes - maxBytes / 10;
+        for (int i = 0; i < order.size() && total > target; i++) {
+            int entry = order.get(i);
+            deleteQuietly(entries.get(entry));
+            total -= sizes.get(entry);
+        }
+    }
+
+    /**
+     * @return the directory holding the cached results.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Internal method to delete a file, ignoring failures.
+     */
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // another process may hold or have removed it
+        }
+    }
+}
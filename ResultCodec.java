@@ -0,0 +1,168 @@
+package cmsc256;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of a ValidationResult.
+ * The format is a magic number and version, then the valid identifiers with
+ * their counts and the invalid identifiers with their lines. Numbers are
+ * written as variable length integers, 7 bits per byte, and the lines of an
+ * invalid identifier as differences from the previous line.
+ * Every size read back is checked against a limit on the bytes the data may
+ * take, so truncated or corrupt data fails with an IOException instead of
+ * a huge or negative allocation.
+ */
+public final class ResultCodec {
+    private static final int MAGIC = 0x56524553; // "VRES"
+    static final int VERSION = 1;
+
+    // Largest number of entries or lines allocated up front, whatever size the data claims
+    private static final int MAX_PRESIZE = 1024;
+
+    private ResultCodec() {
+    }
+
+    /**
+     * Write a result.
+     * @param result the result to write.
+     * @param out the destination.
+     * @throws IOException if writing fails.
+     */
+    public static void write(ValidationResult result, DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        Map<String, Integer> valid = result.getValidIdentifiers();
+        writeVarInt(out, valid.size());
+        for (Map.Entry<String, Integer> entry : valid.entrySet()) {
+            writeString(out, entry.getKey());
+            writeVarInt(out, entry.getValue());
+        }
+        Map<String, List<Integer>> invalid = result.getInvalidIdentifiers();
+        writeVarInt(out, invalid.size());
+        for (Map.Entry<String, List<Integer>> entry : invalid.entrySet()) {
+            writeString(out, entry.getKey());
+            List<Integer> lines = entry.getValue();
+            writeVarInt(out, lines.size());
+            int previous = 0;
+            for (int line : lines) {
+                writeVarInt(out, line - previous);
+                previous = line;
+            }
+        }
+    }
+
+    /**
+     * Read a result written by write().
+     * @param in the source.
+     * @return the result.
+     * @throws IOException if reading fails or the data is not a result in this format.
+     */
+    public static ValidationResult read(DataInput in) throws IOException {
+        return read(in, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read a result written by write() that takes at most maxBytes bytes.
+     * @param in the source.
+     * @param maxBytes the most bytes the result can take, such as the bytes left in the source.
+     * @return the result.
+     * @throws IOException if reading fails, the data is not a result in this format or a size exceeds maxBytes.
+     */
+    public static ValidationResult read(DataInput in, int maxBytes) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a validation result in a supported format");
+        }
+        // every entry and line takes at least one byte, so no size can exceed maxBytes
+        int validSize = readLength(in, maxBytes);
+        Map<String, Integer> valid = new HashMap<>(Math.min(validSize, MAX_PRESIZE) * 2);
+        for (int i = 0; i < validSize; i++) {
+            valid.put(readString(in, maxBytes), readVarInt(in));
+        }
+        int invalidSize = readLength(in, maxBytes);
+        Map<String, List<Integer>> invalid = new HashMap<>(Math.min(invalidSize, MAX_PRESIZE) * 2);
+        for (int i = 0; i < invalidSize; i++) {
+            String word = readString(in, maxBytes);
+            int count = readLength(in, maxBytes);
+            List<Integer> lines = new ArrayList<>(Math.min(count, MAX_PRESIZE));
+            int line = 0;
+            for (int j = 0; j < count; j++) {
+                line += readVarInt(in);
+                lines.add(line);
+            }
+            invalid.put(word, lines);
+        }
+        return new ValidationResult(valid, invalid);
+    }
+
+    /**
+     * Write a non-negative int in 7 bit groups, low group first, with the high bit set on all but the last byte.
+     */
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Read an int written by writeVarInt().
+     */
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break; // only non-negative ints are written
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Read a size written by writeVarInt(), failing if it is larger than limit.
+     */
+    static int readLength(DataInput in, int limit) throws IOException {
+        int length = readVarInt(in);
+        if (length > limit) {
+            throw new IOException("Size " + length + " exceeds the limit of " + limit);
+        }
+        return length;
+    }
+
+    /**
+     * Write a string as its UTF-8 length and bytes; unlike writeUTF there is no 64K limit.
+     */
+    static void writeString(DataOutput out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a string written by writeString().
+     */
+    static String readString(DataInput in) throws IOException {
+        return readString(in, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read a string written by writeString(), failing if it is longer than maxBytes UTF-8 bytes.
+     */
+    static String readString(DataInput in, int maxBytes) throws IOException {
+        byte[] bytes = new byte[readLength(in, maxBytes)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
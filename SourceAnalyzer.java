@@ -0,0 +1,424 @@
+package cmsc256;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scans Java source text and sorts its tokens into valid and invalid identifiers.
+ * This holds the per-source work shared by VariableValidator and BatchValidator;
+ * it keeps no state, so one keyword matcher can be used from many threads.
+ */
+public final class SourceAnalyzer {
+
+    // Sources at least this many characters long are worth splitting into chunks
+    public static final int PARALLEL_THRESHOLD = 4 << 20;
+
+    // Version of the lexing and classification rules; change it whenever a source would get a different result
+    static final int RULES_VERSION = 1;
+
+    // Smallest chunk handed to a separate task
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    // Character classes of the ASCII characters, for classifying tokens without Character lookups
+    private static final byte LETTER = 1;
+    private static final byte DIGIT = 2;
+    private static final byte IDENTIFIER_SYMBOL = 4; // '_' and '$'
+    private static final byte[] ASCII_CLASSES = new byte[128];
+
+    static {
+        for (char ch = 0; ch < 128; ch++) {
+            if (Character.isLetter(ch)) {
+                ASCII_CLASSES[ch] = LETTER;
+            } else if (Character.isDigit(ch)) {
+                ASCII_CLASSES[ch] = DIGIT;
+            }
+        }
+        ASCII_CLASSES['_'] = IDENTIFIER_SYMBOL;
+        ASCII_CLASSES['$'] = IDENTIFIER_SYMBOL;
+    }
+
+    private SourceAnalyzer() {
+    }
+
+    /**
+     * Scan source text once and collect both valid and invalid identifiers.
+     * @param source the Java source text.
+     * @param keywords the reserved words to skip.
+     * @return the identifiers found in the source.
+     */
+    public static ValidationResult analyze(CharSequence source, KeywordMatcher keywords) {
+        return analyze(source, keywords, ValidatorMetrics.NOOP);
+    }
+
+    /**
+     * Scan source text once and collect both valid and invalid identifiers, reporting counts and the scan time.
+     * @param source the Java source text.
+     * @param keywords the reserved words to skip.
+     * @param metrics receives the counts and the scan time.
+     * @return the identifiers found in the source.
+     */
+    public static ValidationResult analyze(CharSequence source, KeywordMatcher keywords, ValidatorMetrics metrics) {
+        return analyze(source, keywords, metrics, null);
+    }
+
+    /**
+     * Scan source text once, taking the identifier Strings from a pool shared with other scans.
+     * @param source the Java source text.
+     * @param keywords the reserved words to skip.
+     * @param metrics receives the counts and the scan time.
+     * @param pool the pool of identifier Strings, or null to copy every identifier.
+     * @return the identifiers found in the source.
+     */
+    public static ValidationResult analyze(CharSequence source, KeywordMatcher keywords, ValidatorMetrics metrics,
+                                           IdentifierPool pool) {
+        long start = System.nanoTime();
+        Chunk chunk = scan(source, 0, source.length(), JavaLexer.State.CODE, keywords, pool);
+        metrics.time(ValidatorMetrics.Timer.SCAN, System.nanoTime() - start);
+        report(chunk, metrics);
+        metrics.add(ValidatorMetrics.Counter.LINES, chunk.lineBreaks + 1);
+        return new ValidationResult(chunk.validId, chunk.invalidId);
+    }
+
+    /**
+     * Scan source text in chunks on several threads and merge the results in order.
+     * The source is split at line starts and every chunk but the first is scanned
+     * assuming it starts in code. Once the previous chunk has finished, a chunk whose
+     * assumed starting state was wrong (inside a block comment or text block) is scanned again.
+     * @param source the Java source text.
+     * @param keywords the reserved words to skip.
+     * @param executor the executor running the chunk scans.
+     * @param parallelism the largest number of chunks to split the source into.
+     * @return the identifiers found in the source, identical to analyze(source, keywords).
+     */
+    public static ValidationResult analyzeParallel(CharSequence source, KeywordMatcher keywords,
+                                                   Executor executor, int parallelism) {
+        return analyzeParallel(source, keywords, executor, parallelism, ValidatorMetrics.NOOP);
+    }
+
+    /**
+     * Scan source text in chunks on several threads, reporting counts and the scan time.
+     * @param source the Java source text.
+     * @param keywords the reserved words to skip.
+     * @param executor the executor running the chunk scans.
+     * @param parallelism the largest number of chunks to split the source into.
+     * @param metrics receives the counts of the chunks kept and the time until they are merged.
+     * @return the identifiers found in the source, identical to analyze(source, keywords).
+     */
+    public static ValidationResult analyzeParallel(CharSequence source, KeywordMatcher keywords,
+                                                   Executor executor, int parallelism, ValidatorMetrics metrics) {
+        long start = System.nanoTime();
+        int chunkCount = Math.max(1, Math.min(parallelism, source.length() / MIN_CHUNK_SIZE));
+        int[] bounds = chunkBounds(source, chunkCount);
+
+        // Scan every chunk speculatively
+        List<CompletableFuture<Chunk>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            tasks.add(CompletableFuture.supplyAsync(
+                    () -> scan(source, from, to, JavaLexer.State.CODE, keywords, null), executor));
+        }
+
+        // Check each chunk's assumed starting state against where the previous chunk ended
+        IdentifierTable validId = new IdentifierTable();
+        IdentifierTable invalidId = new IdentifierTable();
+        JavaLexer.State state = JavaLexer.State.CODE;
+        int lineOffset = 0;
+        for (CompletableFuture<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            if (chunk.startState != state) {
+                chunk = scan(source, chunk.from, chunk.to, state, keywords, null);
+            }
+            validId.addAll(chunk.validId, lineOffset);
+            invalidId.addAll(chunk.invalidId, lineOffset);
+            state = chunk.endState;
+            lineOffset += chunk.lineBreaks;
+            report(chunk, metrics);
+        }
+        metrics.time(ValidatorMetrics.Timer.SCAN, System.nanoTime() - start);
+        metrics.add(ValidatorMetrics.Counter.LINES, lineOffset + 1);
+        return new ValidationResult(validId, invalidId);
+    }
+
+    /**
+     * Pass every token of the source to a listener as soon as it is lexed, without collecting anything.
+     * @param source the Java source text.
+     * @param keywords the reserved words.
+     * @param listener receives each token; returning false stops the scan.
+     * @return true if the whole source was scanned, false if the listener stopped it.
+     */
+    public static boolean forEachIdentifier(CharSequence source, KeywordMatcher keywords,
+                                            IdentifierListener listener) {
+        JavaLexer lexer = new JavaLexer(source);
+        // one view reused for every token, so nothing is copied unless the listener keeps it
+        CharRange token = new CharRange();
+        while (lexer.next()) {
+            int start = lexer.getTokenStart();
+            int end = lexer.getTokenEnd();
+            if (!listener.onIdentifier(classify(source, start, end, keywords), token.set(source, start, end),
+                    lexer.getTokenLine(), lexer.getTokenColumn())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return a lazy stream of the tokens of the source. Tokens are lexed as the stream
+     * is consumed, so a short-circuiting operation such as findFirst stops the scan.
+     * @param source the Java source text.
+     * @param keywords the reserved words.
+     * @return the tokens in source order.
+     */
+    public static Stream<IdentifierOccurrence> identifiers(CharSequence source, KeywordMatcher keywords) {
+        return StreamSupport.stream(occurrences(source, keywords), false);
+    }
+
+    /**
+     * Return a spliterator lexing one token of the source per advance.
+     */
+    static Spliterator<IdentifierOccurrence> occurrences(CharSequence source, KeywordMatcher keywords) {
+        JavaLexer lexer = new JavaLexer(source);
+        return new Spliterators.AbstractSpliterator<IdentifierOccurrence>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+            @Override
+            public boolean tryAdvance(Consumer<? super IdentifierOccurrence> action) {
+                if (!lexer.next()) {
+                    return false;
+                }
+                String word = lexer.getTokenText();
+                action.accept(new IdentifierOccurrence(classify(word, keywords), word,
+                        lexer.getTokenLine(), lexer.getTokenColumn()));
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Classify one token.
+     * @param word the token.
+     * @param keywords the reserved words.
+     * @return the kind of the token.
+     */
+    public static IdentifierKind classify(String word, KeywordMatcher keywords) {
+        return classify(word, 0, word.length(), keywords);
+    }
+
+    /**
+     * Classify a range of characters as a token, without copying it.
+     * @param text the characters holding the token.
+     * @param start offset of the first character of the token.
+     * @param end offset one past the last character of the token.
+     * @param keywords the reserved words.
+     * @return the kind of the token.
+     */
+    public static IdentifierKind classify(CharSequence text, int start, int end, KeywordMatcher keywords) {
+        if (keywords.contains(text, start, end)) {
+            return IdentifierKind.RESERVED;
+        }
+        return classifyWord(text, start, end);
+    }
+
+    /**
+     * Classify a range of characters that is not a keyword. The identifier check
+     * and the search for a letter are done in the same loop: a legal identifier is
+     * VALID, otherwise a token with a letter is INVALID and one without is NUMERIC.
+     * @param text the characters holding the token.
+     * @param start offset of the first character of the token.
+     * @param end offset one past the last character of the token.
+     * @return VALID, INVALID or NUMERIC, the same as isValidIdentifier and isNumber.
+     */
+    public static IdentifierKind classifyWord(CharSequence text, int start, int end) {
+        if (start == end) {
+            return IdentifierKind.NUMERIC;
+        }
+        int first = characterClass(text.charAt(start));
+        boolean valid = (first & (LETTER | IDENTIFIER_SYMBOL)) != 0;
+        boolean hasLetter = first == LETTER;
+        for (int i = start + 1; i < end; i++) {
+            int cls = characterClass(text.charAt(i));
+            valid &= cls != 0;
+            hasLetter |= cls == LETTER;
+        }
+        if (valid) {
+            return IdentifierKind.VALID;
+        }
+        return hasLetter ? IdentifierKind.INVALID : IdentifierKind.NUMERIC;
+    }
+
+    /**
+     * Return the LETTER, DIGIT or IDENTIFIER_SYMBOL class of a character, or 0 for any other character.
+     */
+    private static int characterClass(char ch) {
+        if (ch < 128) {
+            return ASCII_CLASSES[ch];
+        }
+        if (Character.isLetter(ch)) {
+            return LETTER;
+        }
+        return Character.isDigit(ch) ? DIGIT : 0;
+    }
+
+    /**
+     * Copy a range of characters into a String, straight from the bytes for ASCII sources.
+     */
+    static String substring(CharSequence text, int start, int end) {
+        if (text instanceof AsciiCharSequence) {
+            return ((AsciiCharSequence) text).substring(start, end);
+        }
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * Internal method to scan a range of the source starting on line 1 in the given state.
+     */
+    private static Chunk scan(CharSequence source, int from, int to, JavaLexer.State startState,
+                              KeywordMatcher keywords, IdentifierPool pool) {
+        IdentifierTable validId = new IdentifierTable(pool);
+        IdentifierTable invalidId = new IdentifierTable(pool);
+        // counted in locals and reported once per chunk
+        int tokens = 0;
+        int reserved = 0;
+        int valid = 0;
+        int invalid = 0;
+        // Lexer that walks the source once, skipping comments and literals
+        JavaLexer lexer = new JavaLexer(source, from, to, startState, 1);
+        while (lexer.next()) {
+            tokens++;
+            int start = lexer.getTokenStart();
+            int end = lexer.getTokenEnd();
+            // tokens are classified in place; a String is only made the first time a table sees a word
+            switch (classify(source, start, end, keywords)) {
+                case RESERVED:
+                    reserved++;
+                    break;
+                case VALID:
+                    // Add the word to the table or update its occurrence count
+                    validId.increment(source, start, end);
+                    valid++;
+                    break;
+                case INVALID:
+                    // record the line unless it is already the last one recorded for the word
+                    invalidId.addLine(source, start, end, lexer.getTokenLine());
+                    invalid++;
+                    break;
+                default:
+                    break; // numbers are neither valid nor invalid
+            }
+        }
+        return new Chunk(from, to, startState, lexer.getState(), lexer.getLine() - 1, validId, invalidId,
+                tokens, reserved, valid, invalid);
+    }
+
+    /**
+     * Internal method to add the counts of a scanned chunk to the metrics.
+     */
+    private static void report(Chunk chunk, ValidatorMetrics metrics) {
+        metrics.add(ValidatorMetrics.Counter.TOKENS, chunk.tokens);
+        // every token is looked up in the keyword matcher
+        metrics.add(ValidatorMetrics.Counter.KEYWORD_LOOKUPS, chunk.tokens);
+        metrics.add(ValidatorMetrics.Counter.RESERVED, chunk.reserved);
+        metrics.add(ValidatorMetrics.Counter.VALID, chunk.valid);
+        metrics.add(ValidatorMetrics.Counter.INVALID, chunk.invalid);
+    }
+
+    /**
+     * Internal method to split the source into roughly equal ranges that start at line starts.
+     * @return the offsets where the chunks start, followed by the source length.
+     */
+    private static int[] chunkBounds(CharSequence source, int chunkCount) {
+        int length = source.length();
+        int[] bounds = new int[chunkCount + 1];
+        int count = 1;
+        for (int i = 1; i < chunkCount; i++) {
+            int pos = Math.max((int) ((long) length * i / chunkCount), bounds[count - 1]);
+            while (pos < length && source.charAt(pos) != '\n') {
+                pos++;
+            }
+            if (pos + 1 >= length) {
+                break;
+            }
+            bounds[count++] = pos + 1;
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Identifiers found in one range of the source, with line numbers relative to the range.
+     */
+    private static final class Chunk {
+        private final int from;
+        private final int to;
+        private final JavaLexer.State startState;
+        private final JavaLexer.State endState;
+        private final int lineBreaks;
+        private final IdentifierTable validId;
+        private final IdentifierTable invalidId;
+        private final int tokens;
+        private final int reserved;
+        private final int valid;
+        private final int invalid;
+
+        private Chunk(int from, int to, JavaLexer.State startState, JavaLexer.State endState, int lineBreaks,
+                      IdentifierTable validId, IdentifierTable invalidId,
+                      int tokens, int reserved, int valid, int invalid) {
+            this.from = from;
+            this.to = to;
+            this.startState = startState;
+            this.endState = endState;
+            this.lineBreaks = lineBreaks;
+            this.validId = validId;
+            this.invalidId = invalidId;
+            this.tokens = tokens;
+            this.reserved = reserved;
+            this.valid = valid;
+            this.invalid = invalid;
+        }
+    }
+
+    /**
+     * Test if a word follows the Java identifier conventions.
+     */
+    public static boolean isValidIdentifier(String word) {
+        // Check if the token is not empty
+        if (word.isEmpty()) {
+            return false;
+        }
+        // Check if the first character is a valid identifier start character
+        char firstChar = word.charAt(0);
+        if (!(Character.isLetter(firstChar) || firstChar == '_' || firstChar == '$')) {
+            return false;
+        }
+
+        for (int i = 1; i < word.length(); i++) {
+            char ch = word.charAt(i);
+            // Checks if the characters in the token are not a valid identifier character
+            if (!(Character.isLetterOrDigit(ch) || ch == '_' || ch == '$')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Test if a word contains no letters, such as a number literal.
+     */
+    public static boolean isNumber(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            // Verifies if the token consists of at least 1 letter
+            if (Character.isLetter(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
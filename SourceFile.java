@@ -0,0 +1,90 @@
+package cmsc256;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads Java source files as character sequences for the JavaLexer.
+ * Large files are memory-mapped instead of being read through a Scanner.
+ * Pure ASCII content is lexed directly over the bytes and only content
+ * containing a byte above 127 is decoded as UTF-8.
+ */
+public final class SourceFile {
+
+    // Files at least this large are memory-mapped, smaller ones are read into the heap
+    public static final long MAP_THRESHOLD = 1 << 20;
+
+    private SourceFile() {
+    }
+
+    /**
+     * Load the contents of a source file.
+     * @param file the file to read.
+     * @return the characters of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static CharSequence read(File file) throws IOException {
+        return decode(readBytes(file));
+    }
+
+    /**
+     * Load the bytes of a source file, memory-mapping it if it is large.
+     * @param file the file to read.
+     * @return the bytes of the file between position 0 and the limit.
+     * @throws IOException if the file cannot be read.
+     */
+    public static ByteBuffer readBytes(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large to validate: " + file);
+            }
+            ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                    // keep reading until the buffer is full
+                }
+                bytes.flip();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Wrap bytes as characters, decoding as UTF-8 only when a non-ASCII byte is present.
+     * @param bytes the bytes between position 0 and the limit.
+     * @return the characters of the bytes.
+     */
+    public static CharSequence decode(ByteBuffer bytes) {
+        if (isAscii(bytes)) {
+            return new AsciiCharSequence(bytes);
+        }
+        return StandardCharsets.UTF_8.decode(bytes.duplicate());
+    }
+
+    /**
+     * Test if every byte up to the limit is below 128, checking eight bytes at a time.
+     */
+    static boolean isAscii(ByteBuffer bytes) {
+        int limit = bytes.limit();
+        int i = 0;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            if ((bytes.getLong(i) & 0x8080808080808080L) != 0) {
+                return false;
+            }
+        }
+        for (; i < limit; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
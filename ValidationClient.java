@@ -0,0 +1,128 @@
+package cmsc256;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Thin client for a ValidationServer. One client holds one connection and
+ * sends its requests one at a time; it is not safe for concurrent use.
+ */
+public class ValidationClient implements AutoCloseable {
+    private final SocketChannel channel;
+    private final boolean unixSocket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Connect to a server.
+     * @param address the server's UnixDomainSocketAddress or InetSocketAddress.
+     * @throws IOException if the server cannot be reached.
+     */
+    public ValidationClient(SocketAddress address) throws IOException {
+        unixSocket = address instanceof UnixDomainSocketAddress;
+        channel = unixSocket ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Validate files through a server: java cmsc256.ValidationClient (socketPath | port) file...
+     * Exits with status 1 if any file has invalid identifiers or cannot be validated.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: ValidationClient (socketPath | port) file...");
+            System.exit(2);
+        }
+        int status = 0;
+        try (ValidationClient client = new ValidationClient(ValidationServer.parseAddress(args[0]))) {
+            for (int i = 1; i < args.length; i++) {
+                try {
+                    ValidationResult result = client.validateFile(Paths.get(args[i]));
+                    System.out.println(args[i]);
+                    System.out.println("  valid:   " + result.getValidIdentifiers());
+                    System.out.println("  invalid: " + result.getInvalidIdentifiers());
+                    if (!result.getInvalidIdentifiers().isEmpty()) {
+                        status = 1;
+                    }
+                } catch (ValidationException e) {
+                    System.err.println(args[i] + ": " + e.getMessage());
+                    status = 1;
+                }
+            }
+        }
+        System.exit(status);
+    }
+
+    /**
+     * Validate a file. Over a Unix domain socket the server reads the file, and
+     * relative paths are resolved here, not on the server; over TCP the server
+     * does not accept paths, so the file is read here and sent as source text.
+     * @param file the Java file.
+     * @return the result.
+     * @throws ValidationException if the server could not validate the file.
+     * @throws IOException if the file cannot be read or the connection fails.
+     */
+    public ValidationResult validateFile(Path file) throws IOException {
+        if (!unixSocket) {
+            return validateSource(SourceFile.read(file.toFile()).toString());
+        }
+        return request(ValidationServer.REQUEST_PATH, file.toAbsolutePath().toString());
+    }
+
+    /**
+     * Validate Java source text.
+     * @param source the source text.
+     * @return the result.
+     * @throws ValidationException if the server could not validate the source.
+     * @throws IOException if the connection fails.
+     */
+    public ValidationResult validateSource(String source) throws IOException {
+        return request(ValidationServer.REQUEST_SOURCE, source);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Internal method to send one request and read its response.
+     */
+    private ValidationResult request(byte kind, String argument) throws IOException {
+        out.writeByte(kind);
+        ResultCodec.writeString(out, argument);
+        out.flush();
+        if (in.readByte() != ValidationServer.STATUS_OK) {
+            throw new ValidationException(ResultCodec.readString(in));
+        }
+        return ResultCodec.read(in);
+    }
+
+    /**
+     * Thrown when the server answers a request with an error.
+     */
+    public static class ValidationException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public ValidationException(String message) {
+            super(message);
+        }
+    }
+}
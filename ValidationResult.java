@@ -0,0 +1,59 @@
+package cmsc256;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the outcome of one pass over a Java file: the valid identifiers with
+ * their occurrence counts and the invalid identifiers with the lines they appear on.
+ * When built from IdentifierTables the maps are only created when first requested.
+ */
+public class ValidationResult {
+    private IdentifierTable validTable;
+    private IdentifierTable invalidTable;
+    private Map<String, Integer> validIdentifiers;
+    private Map<String, List<Integer>> invalidIdentifiers;
+
+    public ValidationResult(Map<String, Integer> validIdentifiers,
+                            Map<String, List<Integer>> invalidIdentifiers) {
+        if (validIdentifiers == null || invalidIdentifiers == null) {
+            throw new IllegalArgumentException("Identifier maps cannot be null");
+        }
+        this.validIdentifiers = validIdentifiers;
+        this.invalidIdentifiers = invalidIdentifiers;
+    }
+
+    /**
+     * @param validTable the valid identifiers and their counts.
+     * @param invalidTable the invalid identifiers and their lines.
+     */
+    public ValidationResult(IdentifierTable validTable, IdentifierTable invalidTable) {
+        if (validTable == null || invalidTable == null) {
+            throw new IllegalArgumentException("Identifier tables cannot be null");
+        }
+        this.validTable = validTable;
+        this.invalidTable = invalidTable;
+    }
+
+    /**
+     * @return map of each valid identifier to the number of times it occurs.
+     */
+    public synchronized Map<String, Integer> getValidIdentifiers() {
+        if (validIdentifiers == null) {
+            validIdentifiers = validTable.toCountMap();
+            validTable = null;
+        }
+        return validIdentifiers;
+    }
+
+    /**
+     * @return map of each invalid identifier to the line numbers it occurs on.
+     */
+    public synchronized Map<String, List<Integer>> getInvalidIdentifiers() {
+        if (invalidIdentifiers == null) {
+            invalidIdentifiers = invalidTable.toLineMap();
+            invalidTable = null;
+        }
+        return invalidIdentifiers;
+    }
+}
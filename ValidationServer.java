@@ -0,0 +1,278 @@
+package cmsc256;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Long-running validation service, so callers do not pay for JVM startup,
+ * keyword loading and lexer warm-up on every run.
+ * The server listens on a Unix domain socket or a localhost TCP port and
+ * handles each connection on its own thread. A connection carries any number
+ * of requests, each answered before the next is read:
+ * <pre>
+ * request:  byte kind (REQUEST_PATH or REQUEST_SOURCE), string path or source text
+ * response: byte STATUS_OK, result        or   byte STATUS_ERROR, string message
+ * </pre>
+ * Strings and results use the ResultCodec encoding. Every request is
+ * validated against the keyword dictionary's snapshot at the time it arrives.
+ * A request longer than MAX_REQUEST_BYTES is answered with STATUS_ERROR and
+ * the connection is closed.
+ * Path requests read files with the server's permissions, so they are only
+ * accepted on a Unix domain socket, whose file permissions decide who may
+ * connect. Over TCP any local user can connect, and only source requests are served.
+ */
+public class ValidationServer implements AutoCloseable {
+    static final byte REQUEST_PATH = 1;
+    static final byte REQUEST_SOURCE = 2;
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_ERROR = 1;
+
+    /** The longest path or source text accepted, in UTF-8 bytes. */
+    public static final int MAX_REQUEST_BYTES = 64 << 20;
+
+    private final KeywordDictionary keywords;
+    private final SocketAddress address;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "validation-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AcceptThread acceptThread = new AcceptThread();
+    private ServerSocketChannel server;
+    private Path socketFile; // the socket file this server created, removed on close
+
+    /**
+     * @param keywords the keywords to validate against.
+     * @param address a UnixDomainSocketAddress, or an InetSocketAddress that should be on the loopback interface.
+     */
+    public ValidationServer(KeywordDictionary keywords, SocketAddress address) {
+        if (keywords == null || address == null) {
+            throw new IllegalArgumentException("Keywords and address cannot be null");
+        }
+        this.keywords = keywords;
+        this.address = address;
+    }
+
+    /**
+     * Start the server: java cmsc256.ValidationServer keywordFile (socketPath | port)
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 2) {
+            System.err.println("usage: ValidationServer keywordFile (socketPath | port)");
+            System.exit(2);
+        }
+        KeywordDictionary keywords = KeywordDictionary.load(new File(args[0]));
+        ValidationServer server = new ValidationServer(keywords, parseAddress(args[1]));
+        server.start();
+        System.out.println("Validating on " + server.getAddress());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.acceptThread.join();
+    }
+
+    /**
+     * Parse a port number as a localhost TCP address, and anything else as a Unix domain socket path.
+     * @param text the port or socket path.
+     * @return the address.
+     */
+    public static SocketAddress parseAddress(String text) {
+        if (!text.isEmpty() && text.chars().allMatch(Character::isDigit)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(text));
+        }
+        return UnixDomainSocketAddress.of(text);
+    }
+
+    /**
+     * Bind the socket and start accepting connections in the background.
+     * A leftover socket file from a previous server is replaced, but nothing
+     * else at the socket path is: a regular file, a directory or the socket of a
+     * running server makes the start fail.
+     * @throws IOException if the socket cannot be bound or the path is in use.
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        if (address instanceof UnixDomainSocketAddress) {
+            removeStaleSocket((UnixDomainSocketAddress) address);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(address);
+            socketFile = ((UnixDomainSocketAddress) address).getPath();
+        } else {
+            server = ServerSocketChannel.open();
+            server.bind(address);
+        }
+        acceptThread.start();
+    }
+
+    /**
+     * @return the bound address, which has the actual port when started on port 0.
+     * @throws IOException if the address cannot be read.
+     */
+    public SocketAddress getAddress() throws IOException {
+        return server == null ? address : server.getLocalAddress();
+    }
+
+    /**
+     * Stop accepting connections, close open ones and remove the socket file.
+     */
+    @Override
+    public synchronized void close() {
+        connections.shutdownNow();
+        if (server == null) {
+            return;
+        }
+        try {
+            server.close();
+            if (socketFile != null) {
+                Files.deleteIfExists(socketFile);
+            }
+        } catch (IOException e) {
+            // already closed or removed
+        }
+    }
+
+    /**
+     * Internal method to delete a socket file left behind by a server that is no longer running.
+     * @throws IOException if the path holds anything else, or a server still accepts connections on it.
+     */
+    private static void removeStaleSocket(UnixDomainSocketAddress address) throws IOException {
+        Path path = address.getPath();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        // a socket is neither a regular file, a directory nor a symbolic link
+        if (!attributes.isOther()) {
+            throw new IOException("Not replacing " + path + ": it exists and is not a socket");
+        }
+        try {
+            SocketChannel.open(address).close();
+        } catch (ConnectException e) {
+            Files.delete(path); // nobody is listening, so the socket is stale
+            return;
+        }
+        throw new IOException("Not replacing " + path + ": another server is listening on it");
+    }
+
+    /**
+     * Internal method to answer the requests of one connection until the client closes it.
+     */
+    private void serve(SocketChannel channel) {
+        try (SocketChannel client = channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+            while (true) {
+                byte kind;
+                try {
+                    kind = in.readByte();
+                } catch (EOFException e) {
+                    return; // client is done
+                }
+                String argument;
+                try {
+                    argument = ResultCodec.readString(in, MAX_REQUEST_BYTES);
+                } catch (EOFException e) {
+                    return; // client went away mid-request
+                } catch (IOException e) {
+                    // an oversized or malformed length; the rest of the stream cannot be trusted
+                    out.writeByte(STATUS_ERROR);
+                    ResultCodec.writeString(out, String.valueOf(e));
+                    out.flush();
+                    return;
+                }
+                ValidationResult result;
+                try {
+                    result = handle(kind, argument);
+                } catch (IOException | RuntimeException e) {
+                    out.writeByte(STATUS_ERROR);
+                    ResultCodec.writeString(out, String.valueOf(e));
+                    out.flush();
+                    continue;
+                }
+                out.writeByte(STATUS_OK);
+                ResultCodec.write(result, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // client went away mid-request
+        }
+    }
+
+    /**
+     * Internal method to validate one request.
+     */
+    private ValidationResult handle(byte kind, String argument) throws IOException {
+        KeywordMatcher matcher = keywords.snapshot().getMatcher();
+        CharSequence source;
+        if (kind == REQUEST_PATH) {
+            if (!(address instanceof UnixDomainSocketAddress)) {
+                throw new IOException("Path requests are only accepted on a Unix domain socket");
+            }
+            source = SourceFile.read(new File(argument));
+        } else if (kind == REQUEST_SOURCE) {
+            source = argument;
+        } else {
+            throw new IOException("Unknown request kind " + kind);
+        }
+        // Large files are split into chunks scanned on all cores
+        if (source.length() >= SourceAnalyzer.PARALLEL_THRESHOLD) {
+            return SourceAnalyzer.analyzeParallel(source, matcher, ForkJoinPool.commonPool(),
+                    Runtime.getRuntime().availableProcessors());
+        }
+        return SourceAnalyzer.analyze(source, matcher);
+    }
+
+    /**
+     * Accepts connections and hands each one to the connection pool.
+     */
+    private class AcceptThread extends Thread {
+        AcceptThread() {
+            super("validation-accept");
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    SocketChannel client = server.accept();
+                    try {
+                        connections.execute(() -> serve(client));
+                    } catch (RejectedExecutionException e) {
+                        client.close(); // shutting down
+                        return;
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                // server closed
+            } catch (IOException e) {
+                System.err.println("Validation server stopped: " + e);
+            }
+        }
+    }
+}
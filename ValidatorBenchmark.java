@@ -0,0 +1,856 @@
+package cmsc256;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line benchmark harness for the validator and the AVL tree.
+ * Every benchmark is warmed up, then timed over several rounds, and reports the
+ * time per operation, throughput for benchmarks over source text, and the bytes
+ * allocated per operation by the benchmark thread (like JMH's -prof gc).
+ * Source benchmarks run over synthetic Java corpora of several sizes, in a dense
+ * variant with mostly code and a sparse variant with mostly comments and strings.
+ * Results can be recorded to a CSV file and compared against a recorded baseline.
+ * With --batch, the batch validators are also timed over the Java files of a directory.
+ * With --self-check, nothing is timed: the fast paths are checked against the
+ * simple ones on random input, and the exit status is 1 if any result differs.
+ * The input is the same for the same --seed, 1 by default.
+ *
+ * Usage: java cmsc256.ValidatorBenchmark [--lines 10000,100000] [--keywords file] [--batch dir]
+ *                                        [--filter name] [--out results.csv] [--baseline results.csv]
+ *        java cmsc256.ValidatorBenchmark --self-check [--keywords file] [--seed n]
+ */
+public class ValidatorBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int MIN_ROUND_NANOS = 50_000_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    // Prevents the JIT from discarding benchmark results
+    private static long blackhole;
+
+    // Lines that start or end comments, strings and text blocks, for the randomized self-checks
+    private static final String[] RANDOM_LINES = {
+        "/* open", "close */ int z9 = 1;", "String t = \"\"\"", "\"\"\";", "int 5x = q;", "", "x // c",
+        "a b c 1d", "char c = '\"'; String s = \"/* not a comment\";", "    count += value * 2;",
+    };
+
+    private final String filter;
+    private final Map<String, Double> baseline;
+    private final List<String> results = new ArrayList<>();
+
+    private ValidatorBenchmark(String filter, Map<String, Double> baseline) {
+        this.filter = filter;
+        this.baseline = baseline;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String keywordFile = "JavaKeywordList.txt";
+        String filter = "";
+        String out = null;
+        String baselineFile = null;
+        String batchDir = null;
+        int[] sizes = {10_000, 100_000};
+        boolean selfCheck = false;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--lines":
+                    String[] parts = args[++i].split(",");
+                    sizes = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        sizes[j] = Integer.parseInt(parts[j].trim());
+                    }
+                    break;
+                case "--keywords":
+                    keywordFile = args[++i];
+                    break;
+                case "--filter":
+                    filter = args[++i];
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--baseline":
+                    baselineFile = args[++i];
+                    break;
+                case "--batch":
+                    batchDir = args[++i];
+                    break;
+                case "--self-check":
+                    selfCheck = true;
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (selfCheck) {
+            System.exit(selfCheck(keywordFile, seed) ? 0 : 1);
+        }
+
+        ValidatorBenchmark bench = new ValidatorBenchmark(filter,
+                baselineFile == null ? Collections.emptyMap() : readBaseline(baselineFile));
+        System.out.printf("%-48s %12s %10s %12s %10s%n", "benchmark", "ns/op", "MB/s", "B/op", "vs base");
+        bench.treeBenchmarks(keywordFile);
+        for (int lines : sizes) {
+            for (boolean dense : new boolean[] {true, false}) {
+                bench.sourceBenchmarks(keywordFile, lines, dense);
+            }
+        }
+        bench.longLineBenchmarks(sizes[0]);
+        bench.lookupBenchmarks(keywordFile, generateSource(sizes[sizes.length - 1], true));
+        if (batchDir != null) {
+            bench.batchBenchmarks(keywordFile, Paths.get(batchDir));
+        }
+
+        if (out != null) {
+            try (PrintWriter writer = new PrintWriter(out)) {
+                writer.println("benchmark,ns_per_op,bytes_per_op");
+                bench.results.forEach(writer::println);
+            }
+        }
+        System.out.println("checksum " + blackhole);
+    }
+
+    /**
+     * Benchmarks of the AVL tree, the keyword loading and the traversals.
+     */
+    private void treeBenchmarks(String keywordFile) throws FileNotFoundException {
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            words.add("word" + i);
+        }
+        Collections.shuffle(words, new Random(42));
+        AVLTree<String> tree = new AVLTree<>();
+        words.forEach(tree::insert);
+
+        measure("avl.insert[10000]", 0, () -> {
+            AVLTree<String> built = new AVLTree<>();
+            for (String word : words) {
+                built.insert(word);
+            }
+            return built.isEmpty() ? 0 : 1;
+        });
+        measure("avl.find[10000]", 0, () -> {
+            long hits = 0;
+            for (String word : words) {
+                if (tree.find(word) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+
+        ArrayAVLTree<String> arrayTree = new ArrayAVLTree<>();
+        words.forEach(arrayTree::insert);
+        measure("arrayAvl.insert[10000]", 0, () -> {
+            ArrayAVLTree<String> built = new ArrayAVLTree<>();
+            for (String word : words) {
+                built.insert(word);
+            }
+            return built.size();
+        });
+        measure("arrayAvl.find[10000]", 0, () -> {
+            long hits = 0;
+            for (String word : words) {
+                if (arrayTree.find(word) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+        // B/op of the bulk loads is the footprint of the tree, without the elements
+        List<String> sorted = new ArrayList<>(new TreeSet<>(words));
+        measure("avl.fromSorted[10000]", 0, () -> AVLTree.fromSorted(sorted).isEmpty() ? 0 : 1);
+        measure("arrayAvl.fromSorted[10000]", 0, () -> ArrayAVLTree.fromSorted(sorted).size());
+
+        File keywords = new File(keywordFile);
+        VariableValidator validator = new VariableValidator(keywordFile);
+        measure("keywords.load", 0, () -> KeywordSet.load(keywords).getMatcher().size());
+        measure("keywords.createKeywordTree", 0, () -> validator.createKeywordTree().isEmpty() ? 0 : 1);
+        measure("traversal.inorder", 0, () -> validator.getInorderTraversal().length());
+        measure("traversal.preorder", 0, () -> validator.getPreorderTraversal().length());
+        measure("traversal.postorder", 0, () -> validator.getPostorderTraversal().length());
+    }
+
+    /**
+     * Benchmarks of tokenizing and validating one synthetic corpus.
+     */
+    private void sourceBenchmarks(String keywordFile, int lines, boolean dense) throws IOException {
+        String source = generateSource(lines, dense);
+        String suffix = "[" + lines + (dense ? ",dense]" : ",sparse]");
+        String[] sourceLines = source.split("\n");
+        KeywordMatcher matcher = KeywordSet.load(new File(keywordFile)).getMatcher();
+
+        File file = File.createTempFile("bench", ".java");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), source);
+        VariableValidator validator = new VariableValidator(keywordFile, file.getPath());
+
+        int length = source.length();
+        measure("legacy.removeStringsAndDelimiters" + suffix, length, () -> {
+            long chars = 0;
+            for (String line : sourceLines) {
+                chars += removeStringsAndDelimiters(line).length();
+            }
+            return chars;
+        });
+        measure("tokenize.legacy" + suffix, length, () -> legacyTokenCount(source));
+        measure("tokenize.lexer" + suffix, length, () -> lexerTokenCount(source));
+        CharSequence ascii = new AsciiCharSequence(ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+        measure("tokenize.lexerAscii" + suffix, length, () -> lexerTokenCount(ascii));
+        measure("read.scanner" + suffix, length, () -> legacyFileTokenCount(file));
+        measure("read.mapped" + suffix, length, () -> lexerTokenCount(SourceFile.read(file)));
+        measure("analyze" + suffix, length, () -> occurrences(SourceAnalyzer.analyze(source, matcher)));
+        measure("analyzeParallel" + suffix, length, () -> occurrences(SourceAnalyzer.analyzeParallel(source,
+                matcher, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors())));
+        measure("e2e.getValidJavaIdentifiers" + suffix, length,
+                () -> validator.getValidJavaIdentifiers().size());
+        measure("e2e.getInvalidJavaIdentifiers" + suffix, length,
+                () -> validator.getInvalidJavaIdentifiers().size());
+    }
+
+    /**
+     * Benchmarks of the lexer over source with long comments and string literals.
+     */
+    private void longLineBenchmarks(int lines) {
+        String source = generateLongLineSource(lines);
+        String suffix = "[" + lines + ",long]";
+        CharSequence ascii = new AsciiCharSequence(ByteBuffer.wrap(source.getBytes(StandardCharsets.US_ASCII)));
+        measure("tokenize.lexer" + suffix, source.length(), () -> lexerTokenCount(source));
+        measure("tokenize.lexerAscii" + suffix, source.length(), () -> lexerTokenCount(ascii));
+    }
+
+    /**
+     * Benchmarks of validating every Java file of a directory as one batch.
+     * B/op only counts the benchmark thread, not the readers and scanners.
+     */
+    private void batchBenchmarks(String keywordFile, Path dir) throws IOException {
+        List<Path> files = BatchValidator.findJavaFiles(Collections.singletonList(dir));
+        long bytes = 0;
+        for (Path file : files) {
+            bytes += Files.size(file);
+        }
+        String suffix = "[" + files.size() + " files]";
+        KeywordDictionary keywords = new KeywordDictionary(KeywordSet.load(new File(keywordFile)));
+        int threads = Runtime.getRuntime().availableProcessors();
+        BatchValidator batch = new BatchValidator(keywords, ForkJoinPool.commonPool());
+        ExecutorService scanners = Executors.newFixedThreadPool(threads);
+        try {
+            PipelinedBatchValidator pipelined = new PipelinedBatchValidator(keywords, scanners);
+            measure("batch.parallel" + suffix, bytes, () -> batch.validate(dir).getFileCount());
+            measure("batch.pipelined" + suffix, bytes, () -> pipelined.validate(dir).getFileCount());
+        } finally {
+            scanners.shutdown();
+        }
+    }
+
+    /**
+     * Benchmarks of one keyword lookup for every token of the source.
+     */
+    private void lookupBenchmarks(String keywordFile, String source) throws FileNotFoundException {
+        KeywordSet keywords = KeywordSet.load(new File(keywordFile));
+        AVLTree<String> tree = keywords.getTree();
+        KeywordMatcher matcher = keywords.getMatcher();
+
+        List<String> words = new ArrayList<>();
+        List<int[]> ranges = new ArrayList<>();
+        JavaLexer lexer = new JavaLexer(source);
+        while (lexer.next()) {
+            ranges.add(new int[] {lexer.getTokenStart(), lexer.getTokenEnd()});
+            words.add(lexer.getTokenText());
+        }
+        String[] tokens = words.toArray(new String[0]);
+        int[][] bounds = ranges.toArray(new int[0][]);
+        String suffix = "[" + tokens.length + " tokens]";
+
+        measure("lookup.avlFind" + suffix, 0, () -> {
+            long hits = 0;
+            for (String token : tokens) {
+                if (tree.find(token) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+        ArrayAVLTree<String> arrayTree = ArrayAVLTree.fromSorted(Arrays.asList(matcher.getKeywords()));
+        measure("lookup.arrayAvlFind" + suffix, 0, () -> {
+            long hits = 0;
+            for (String token : tokens) {
+                if (arrayTree.find(token) != null) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+        measure("lookup.matcherString" + suffix, 0, () -> {
+            long hits = 0;
+            for (String token : tokens) {
+                if (matcher.contains(token)) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+        measure("lookup.matcherRange" + suffix, 0, () -> {
+            long hits = 0;
+            for (int[] range : bounds) {
+                if (matcher.contains(source, range[0], range[1])) {
+                    hits++;
+                }
+            }
+            return hits;
+        });
+
+        // B/op shows the per token allocation: a String per token before, none for rejected tokens now
+        measure("classify.string" + suffix, 0, () -> {
+            long valid = 0;
+            for (int[] range : bounds) {
+                String word = source.substring(range[0], range[1]);
+                if (!matcher.contains(word) && SourceAnalyzer.isValidIdentifier(word)) {
+                    valid++;
+                } else if (!SourceAnalyzer.isNumber(word)) {
+                    valid--;
+                }
+            }
+            return valid;
+        });
+        measure("classify.range" + suffix, 0, () -> {
+            long valid = 0;
+            for (int[] range : bounds) {
+                IdentifierKind kind = SourceAnalyzer.classify(source, range[0], range[1], matcher);
+                if (kind == IdentifierKind.VALID) {
+                    valid++;
+                } else if (kind == IdentifierKind.INVALID) {
+                    valid--;
+                }
+            }
+            return valid;
+        });
+        measure("classify.forEachIdentifier" + suffix, 0, () -> {
+            long[] valid = {0};
+            SourceAnalyzer.forEachIdentifier(source, matcher, (kind, text, line, column) -> {
+                if (kind == IdentifierKind.VALID) {
+                    valid[0]++;
+                }
+                return true;
+            });
+            return valid[0];
+        });
+    }
+
+    /**
+     * Check on random input that the fast paths give the same results as the simple ones:
+     * parallel against sequential scans, the lexer over ASCII bytes against a String,
+     * and incremental edits against scanning the whole source again. Every entry of the
+     * keyword file, operators included, must also be rejected as a token.
+     * @param keywordFile the keyword file.
+     * @param seed the seed of the random input, printed so a failure can be repeated.
+     * @return true if every check passed.
+     */
+    static boolean selfCheck(String keywordFile, long seed) throws FileNotFoundException {
+        System.out.println("self-check seed " + seed);
+        KeywordMatcher keywords = KeywordSet.load(new File(keywordFile)).getMatcher();
+        int failures = checkParallel(keywords, new Random(seed))
+                + checkAsciiLexer(new Random(seed))
+                + checkIncremental(keywords, new Random(seed))
+                + checkKeywordEntries(keywordFile);
+        System.out.println(failures == 0 ? "self-check passed" : "self-check failed with " + failures + " mismatches");
+        return failures == 0;
+    }
+
+    /**
+     * Compare analyzeParallel with analyze on sources of about 9 MB, as Strings and as ASCII bytes.
+     * @return the number of mismatches.
+     */
+    private static int checkParallel(KeywordMatcher keywords, Random random) {
+        String[] names = {"dense", "sparse", "long lines", "random"};
+        String[] sources = {generateSource(250_000, true), generateSource(190_000, false),
+                generateLongLineSource(11_500), generateRandomSource(random, 615_000)};
+        int[] parallelisms = {2, 7, Runtime.getRuntime().availableProcessors(), 64};
+        int failures = 0;
+        for (int i = 0; i < sources.length; i++) {
+            int before = failures;
+            CharSequence ascii = SourceFile.decode(ByteBuffer.wrap(sources[i].getBytes(StandardCharsets.US_ASCII)));
+            ValidationResult expected = SourceAnalyzer.analyze(sources[i], keywords);
+            for (int parallelism : parallelisms) {
+                for (CharSequence source : new CharSequence[] {sources[i], ascii}) {
+                    ValidationResult actual = SourceAnalyzer.analyzeParallel(source, keywords,
+                            ForkJoinPool.commonPool(), parallelism);
+                    if (!sameResult(expected, actual)) {
+                        failures++;
+                        System.out.println("  analyzeParallel differs: " + names[i] + " source, parallelism "
+                                + parallelism + ", " + source.getClass().getSimpleName());
+                    }
+                }
+            }
+            System.out.printf("  analyzeParallel against analyze: %s source, %.1f MB, %d mismatches%n", names[i],
+                    sources[i].length() / 1e6, failures - before);
+        }
+        return failures;
+    }
+
+    /**
+     * Compare the tokens and end state of the lexer over an AsciiCharSequence and over a String,
+     * for random text in every starting state and for the generated sources.
+     * @return the number of mismatches.
+     */
+    private static int checkAsciiLexer(Random random) {
+        String alphabet = " \t\n\r*/\"'\\abc{};x1";
+        JavaLexer.State[] states = JavaLexer.State.values();
+        int cases = 200_000;
+        int failures = 0;
+        for (int i = 0; i < cases; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int j = 0; j < length; j++) {
+                // runs of spaces reach the word-at-a-time skipping in the lexer
+                if (random.nextInt(4) == 0) {
+                    text.append("        ");
+                } else {
+                    text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+            }
+            String string = text.toString();
+            // the bytes have a prefix and suffix, so the sequence starts at an offset in its buffer
+            byte[] bytes = ("XX" + string + "YY").getBytes(StandardCharsets.US_ASCII);
+            CharSequence ascii = new AsciiCharSequence(ByteBuffer.wrap(bytes)).subSequence(2, 2 + string.length());
+            JavaLexer.State state = states[random.nextInt(states.length)];
+            int to = string.length() - random.nextInt(Math.min(3, string.length()) + 1);
+            if (!lexedTokens(string, to, state).equals(lexedTokens(ascii, to, state))) {
+                if (failures++ < 3) {
+                    System.out.println("  lexer differs on ASCII bytes: state " + state + ", end " + to + ", text "
+                            + string.replace("\n", "\\n").replace("\r", "\\r"));
+                }
+            }
+        }
+        for (String string : new String[] {generateSource(10_000, true), generateSource(10_000, false),
+                generateLongLineSource(1_000)}) {
+            CharSequence ascii = new AsciiCharSequence(ByteBuffer.wrap(string.getBytes(StandardCharsets.US_ASCII)));
+            if (!lexedTokens(string, string.length(), JavaLexer.State.CODE)
+                    .equals(lexedTokens(ascii, string.length(), JavaLexer.State.CODE))) {
+                failures++;
+                System.out.println("  lexer differs on ASCII bytes of a generated source");
+            }
+        }
+        System.out.println("  lexer on ASCII bytes against String: " + cases + " random texts, " + failures
+                + " mismatches");
+        return failures;
+    }
+
+    /**
+     * Apply random line edits to an IncrementalSession and compare it after each with analyzing the whole source.
+     * @return the number of mismatches.
+     */
+    private static int checkIncremental(KeywordMatcher keywords, Random random) {
+        int edits = 24_000;
+        List<String> lines = new ArrayList<>(Arrays.asList(generateRandomSource(random, 200).split("\n", -1)));
+        IncrementalSession session = new IncrementalSession(String.join("\n", lines), keywords);
+        int failures = 0;
+        int applied = 0;
+        for (int i = 0; i < edits; i++) {
+            // one position past the last line inserts at the end, and is the only one once every line is deleted
+            int startLine = 1 + random.nextInt(lines.size() + 1);
+            int endLine = Math.min(lines.size(), startLine - 1 + random.nextInt(3));
+            List<String> replacement = new ArrayList<>();
+            // an empty text deletes the lines, so zero or at least one non-empty line is inserted
+            for (int count = random.nextInt(3); replacement.size() < count; ) {
+                String line = RANDOM_LINES[random.nextInt(RANDOM_LINES.length)];
+                if (count > 1 || !line.isEmpty()) {
+                    replacement.add(line);
+                }
+            }
+            session.replaceLines(startLine, endLine, String.join("\n", replacement));
+            lines.subList(startLine - 1, endLine).clear();
+            lines.addAll(startLine - 1, replacement);
+
+            ValidationResult expected = SourceAnalyzer.analyze(String.join("\n", lines), keywords);
+            if (session.getLineCount() != lines.size()
+                    || !expected.getValidIdentifiers().equals(session.getValidJavaIdentifiers())
+                    || !expected.getInvalidIdentifiers().equals(session.getInvalidJavaIdentifiers())) {
+                failures++;
+                System.out.println("  IncrementalSession differs after edit " + i + " of lines " + startLine
+                        + " to " + endLine);
+                break; // every later edit would differ too
+            }
+            applied++;
+        }
+        System.out.println("  IncrementalSession against full analysis: " + applied + " random edits matched, "
+                + failures + " mismatches");
+        return failures;
+    }
+
+    /**
+     * Check that every entry of the keyword file is a keyword to the validator and the dictionary,
+     * including the operators that are only kept in the tree.
+     * @return the number of mismatches.
+     */
+    private static int checkKeywordEntries(String keywordFile) throws FileNotFoundException {
+        VariableValidator validator = new VariableValidator(keywordFile);
+        validator.createKeywordTree();
+        KeywordDictionary dictionary = KeywordDictionary.load(new File(keywordFile));
+        int entries = 0;
+        int operators = 0;
+        int failures = 0;
+        try (Scanner input = new Scanner(new File(keywordFile))) {
+            while (input.hasNextLine()) {
+                String entry = input.nextLine().trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                entries++;
+                if (!KeywordProfiles.isToken(entry)) {
+                    operators++;
+                }
+                if (validator.isValidToken(entry) || !dictionary.contains(entry)) {
+                    failures++;
+                    System.out.println("  keyword file entry " + entry + " is not treated as a keyword");
+                }
+            }
+        }
+        System.out.println("  keyword file entries rejected as tokens: " + entries + " entries, " + operators
+                + " operators, " + failures + " mismatches");
+        return failures;
+    }
+
+    /**
+     * Internal method to test if two results have the same identifiers, counts and lines.
+     */
+    private static boolean sameResult(ValidationResult expected, ValidationResult actual) {
+        return expected.getValidIdentifiers().equals(actual.getValidIdentifiers())
+                && expected.getInvalidIdentifiers().equals(actual.getInvalidIdentifiers());
+    }
+
+    /**
+     * Internal method to list the position of every token the lexer returns and its state at the end.
+     */
+    private static List<String> lexedTokens(CharSequence text, int to, JavaLexer.State state) {
+        JavaLexer lexer = new JavaLexer(text, 0, to, state, 1);
+        List<String> tokens = new ArrayList<>();
+        while (lexer.next()) {
+            tokens.add(lexer.getTokenStart() + ":" + lexer.getTokenEnd() + ":" + lexer.getTokenLine() + ":"
+                    + lexer.getTokenColumn());
+        }
+        tokens.add(lexer.getState() + ":" + lexer.getLine() + ":" + lexer.getPosition());
+        return tokens;
+    }
+
+    /**
+     * Warm up and time one benchmark, then print and record its result.
+     * @param name the benchmark name.
+     * @param bytes the input size per operation used for throughput, or 0.
+     * @param op the operation to time.
+     */
+    private void measure(String name, long bytes, Op op) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                round(op);
+            }
+            long nanos = 0;
+            long allocated = 0;
+            long ops = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long[] round = round(op);
+                nanos += round[0];
+                allocated += round[1];
+                ops += round[2];
+            }
+            double nanosPerOp = (double) nanos / ops;
+            double bytesPerOp = THREADS == null ? -1 : (double) allocated / ops;
+            String throughput = bytes == 0 ? "" : String.format("%.1f", bytes / 1e6 / (nanosPerOp / 1e9));
+            Double base = baseline.get(name);
+            String change = base == null ? "" : String.format("%+.1f%%", (nanosPerOp - base) / base * 100);
+            System.out.printf("%-48s %,12.0f %10s %,12.0f %10s%n", name, nanosPerOp, throughput, bytesPerOp, change);
+            results.add(name.replace(',', ';') + "," + nanosPerOp + "," + bytesPerOp);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Run an operation repeatedly for at least MIN_ROUND_NANOS.
+     * @return the elapsed nanoseconds, allocated bytes and number of operations.
+     */
+    private static long[] round(Op op) throws IOException {
+        long ops = 0;
+        long allocatedStart = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            blackhole += op.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MIN_ROUND_NANOS);
+        return new long[] {elapsed, allocatedBytes() - allocatedStart, ops};
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread, or 0 if unsupported.
+     */
+    private static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+            if (threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the nanoseconds per operation of each benchmark from a recorded CSV file.
+     */
+    private static Map<String, Double> readBaseline(String fileName) throws FileNotFoundException {
+        Map<String, Double> baseline = new HashMap<>();
+        try (Scanner in = new Scanner(new File(fileName))) {
+            if (in.hasNextLine()) {
+                in.nextLine(); // header
+            }
+            while (in.hasNextLine()) {
+                String[] fields = in.nextLine().split(",");
+                if (fields.length >= 2) {
+                    baseline.put(fields[0].replace(';', ','), Double.parseDouble(fields[1]));
+                }
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Count the valid identifier occurrences and invalid identifier lines in a result.
+     */
+    static long occurrences(ValidationResult result) {
+        long count = 0;
+        for (int occurrences : result.getValidIdentifiers().values()) {
+            count += occurrences;
+        }
+        for (List<Integer> lines : result.getInvalidIdentifiers().values()) {
+            count += lines.size();
+        }
+        return count;
+    }
+
+    /**
+     * Generate Java source whose lines hold long comments, string literals and indentation.
+     * @param lines the number of lines.
+     * @return the source text.
+     */
+    static String generateLongLineSource(int lines) {
+        String words = "the quick brown fox jumps over the lazy dog while the validator keeps counting ";
+        String text = words.repeat(12);
+        String indent = " ".repeat(40);
+        String[] templates = {
+            indent + "// %d " + text,
+            indent + "String message%d = \"" + text + "\";",
+            indent + "/* %d " + text + "*/ int value%d = message.length();",
+            indent + "char separator%d = ',';",
+        };
+        StringBuilder source = new StringBuilder(lines * 1000);
+        source.append("package bench;\n");
+        for (int i = 0; i < lines; i++) {
+            source.append(String.format(templates[i % templates.length], i, i)).append('\n');
+        }
+        return source.toString();
+    }
+
+    /**
+     * Count tokens with the JavaLexer.
+     */
+    static long lexerTokenCount(CharSequence source) {
+        JavaLexer lexer = new JavaLexer(source);
+        long count = 0;
+        while (lexer.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Count tokens with the original tokenizer reading the file through a Scanner.
+     */
+    static long legacyFileTokenCount(File file) throws FileNotFoundException {
+        try (Scanner input = new Scanner(file)) {
+            return legacyTokenCount(input);
+        }
+    }
+
+    /**
+     * Count tokens the way VariableValidator did before the JavaLexer:
+     * Scanner lines, comment skipping, string removal, chained replace and split.
+     */
+    static long legacyTokenCount(String source) {
+        return legacyTokenCount(new Scanner(source));
+    }
+
+    private static long legacyTokenCount(Scanner input) {
+        long count = 0;
+        while (input.hasNextLine()) {
+            String line = input.nextLine().trim();
+            if (line.contains("/*") || line.contains("//")) {
+                while (input.hasNextLine()) {
+                    if (line.contains("*/")) {
+                        line = input.nextLine().trim();
+                        break;
+                    } else if (line.contains("//")) {
+                        line = line.replace(line.substring(line.indexOf("//")), "");
+                        break;
+                    } else {
+                        line = input.nextLine().trim();
+                    }
+                }
+            }
+            line = removeStringsAndDelimiters(line);
+            if (!line.isEmpty()) {
+                for (String word : line.split(" ")) {
+                    if (!word.isEmpty()) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The original string and delimiter removal from VariableValidator.
+     */
+    static String removeStringsAndDelimiters(String input) {
+        String placeHolder = "";
+        boolean insideStringLiteral = false;
+        if (input.contains("\"")) {
+            for (int i = 0; i < input.length(); i++) {
+                char ch = input.charAt(i);
+                if (insideStringLiteral) {
+                    if (ch == '\"') {
+                        insideStringLiteral = false;
+                    }
+                    continue;
+                }
+                if (ch == '\"') {
+                    insideStringLiteral = true;
+                }
+                placeHolder += ch;
+            }
+            input = placeHolder;
+        }
+        return input
+                .replace("\"", "")
+                .replace("{", " ")
+                .replace("}", " ")
+                .replace("(", " ")
+                .replace(")", " ")
+                .replace("[", " ")
+                .replace("]", " ")
+                .replace(",", " ")
+                .replace(".", " ")
+                .replace(";", " ")
+                .replace("+", " ")
+                .replace("-", " ")
+                .replace("*", " ")
+                .replace("/", " ")
+                .replace("%", " ")
+                .replace("=", " ")
+                .replace("<", " ")
+                .replace(">", " ");
+    }
+
+    /**
+     * Build a Java-like source with the given number of lines and mostly code.
+     */
+    static String generateSource(int lines) {
+        return generateSource(lines, true);
+    }
+
+    /**
+     * Build a Java-like source with the given number of lines.
+     * @param lines the number of lines.
+     * @param dense true for mostly code lines, false for mostly comments and string literals.
+     */
+    static String generateSource(int lines, boolean dense) {
+        String[] denseTemplates = {
+            "    private int count%d = 0;",
+            "    // increments the counter %d",
+            "    public void update%d(String name, int value) {",
+            "        String label = \"value \" + name + \" is \" + value; // %d",
+            "        if (value > count%d && name != null) {",
+            "            count%d += value * 2;",
+            "        }",
+            "    /* block comment %d */",
+            "        int 2invalid%d = value;",
+            "    }",
+        };
+        String[] sparseTemplates = {
+            "    /**",
+            "     * Returns the label of entry %d, formatted for display to the user.",
+            "     * @param name the name of the entry",
+            "     */",
+            "    String describe%d(String name) {",
+            "        // build the message from the fixed text and the entry name",
+            "        return \"The entry named \" + name + \" has index %d and is active\";",
+            "    }",
+            "    // TODO remove entry %d once the migration is finished",
+            "    String notice%d = \"Do not edit this generated section, changes are overwritten\";",
+        };
+        String[] templates = dense ? denseTemplates : sparseTemplates;
+        StringBuilder source = new StringBuilder(lines * 50);
+        source.append("package bench;\n");
+        for (int i = 0; i < lines; i++) {
+            source.append(String.format(templates[i % templates.length], i)).append('\n');
+        }
+        return source.toString();
+    }
+
+    /**
+     * Generate Java source of random lines that open and close comments, strings and text blocks
+     * mixed with ordinary code, so block comments and text blocks span many lines.
+     * @param random the source of randomness.
+     * @param lines the number of lines.
+     * @return the source text.
+     */
+    static String generateRandomSource(Random random, int lines) {
+        StringBuilder source = new StringBuilder(lines * 24);
+        for (int i = 0; i < lines; i++) {
+            source.append(RANDOM_LINES[random.nextInt(RANDOM_LINES.length)]).append('\n');
+        }
+        return source.toString();
+    }
+
+    private interface Op {
+        long run() throws IOException;
+    }
+}
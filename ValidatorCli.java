@@ -0,0 +1,258 @@
+package cmsc256;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line driver: validates Java files and directories and reports the
+ * invalid identifiers as text or JSON.
+ * <pre>
+ * java cmsc256.ValidatorCli [--keywords file | --profiles names | --snapshot file] [--format text|json]
+ *                           [--timing] path...
+ * java cmsc256.ValidatorCli [--keywords file | --profiles names] --write-snapshot file
+ * </pre>
+ * --profiles combines keyword profiles instead of reading a keyword file, for
+ * example --profiles java17,contextual,operators (see KeywordProfile.parse).
+ * Exit status is 0 when every file is clean, 1 when invalid identifiers were
+ * found and 2 for usage errors or files that could not be read.
+ *
+ * For fast startup, save the compiled keywords once with --write-snapshot and
+ * pass --snapshot instead of --keywords: the snapshot holds the matcher's hash
+ * table, so the keyword file is not parsed and no AVLTree is built. Startup is
+ * cut further with an AppCDS archive of the classes loaded by a typical run;
+ * the classes must be on the class path as a jar for the archive to be used:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=validator.jsa -cp validator.jar cmsc256.ValidatorCli --snapshot keywords.bin src
+ * java -XX:SharedArchiveFile=validator.jsa -cp validator.jar cmsc256.ValidatorCli --snapshot keywords.bin src
+ * </pre>
+ * --timing prints the time from JVM start to the finished report on standard error,
+ * followed by the counts and total phase times reported by the batch.
+ */
+public final class ValidatorCli {
+    private static final String DEFAULT_KEYWORDS = "JavaKeywordList.txt";
+
+    private ValidatorCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run the command line driver.
+     * @param args the command line arguments.
+     * @param out the destination of the report.
+     * @param err the destination of errors and timing.
+     * @return the exit status.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        String keywordFile = DEFAULT_KEYWORDS;
+        String snapshotFile = null;
+        String profileNames = null;
+        String writeSnapshot = null;
+        boolean json = false;
+        boolean timing = false;
+        List<Path> paths = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--keywords":
+                        keywordFile = args[++i];
+                        break;
+                    case "--profiles":
+                        profileNames = args[++i];
+                        break;
+                    case "--snapshot":
+                        snapshotFile = args[++i];
+                        break;
+                    case "--write-snapshot":
+                        writeSnapshot = args[++i];
+                        break;
+                    case "--format":
+                        String format = args[++i];
+                        if (!format.equals("text") && !format.equals("json")) {
+                            return usage(err, "unknown format " + format);
+                        }
+                        json = format.equals("json");
+                        break;
+                    case "--timing":
+                        timing = true;
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            return usage(err, "unknown option " + args[i]);
+                        }
+                        paths.add(Paths.get(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return usage(err, "missing value for " + args[args.length - 1]);
+        }
+
+        KeywordProfiles profiles = null;
+        long profileNanos = 0; // compiling the profiles counts as loading the keywords
+        if (profileNames != null) {
+            try {
+                long start = System.nanoTime();
+                profiles = KeywordProfiles.parse(profileNames);
+                profileNanos = System.nanoTime() - start;
+            } catch (IllegalArgumentException e) {
+                return usage(err, e.getMessage());
+            }
+        }
+
+        try {
+            if (writeSnapshot != null) {
+                KeywordMatcher matcher = profiles != null
+                        ? profiles.getMatcher() : KeywordSet.load(new File(keywordFile)).getMatcher();
+                try (DataOutputStream snapshot = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(Paths.get(writeSnapshot))))) {
+                    matcher.writeSnapshot(snapshot);
+                }
+                return 0;
+            }
+            if (paths.isEmpty()) {
+                return usage(err, "no files to validate");
+            }
+
+            CountingMetrics metrics = timing ? new CountingMetrics() : null;
+            long loadStart = System.nanoTime();
+            KeywordSet keywords;
+            if (snapshotFile != null) {
+                try (DataInputStream snapshot = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(Paths.get(snapshotFile))))) {
+                    keywords = new KeywordSet(KeywordMatcher.readSnapshot(snapshot));
+                }
+            } else if (profiles != null) {
+                keywords = profiles.toKeywordSet();
+            } else {
+                keywords = KeywordSet.load(new File(keywordFile));
+            }
+            if (metrics != null) {
+                metrics.time(ValidatorMetrics.Timer.KEYWORD_LOAD, profileNanos + System.nanoTime() - loadStart);
+            }
+            BatchReport report = new BatchValidator(new KeywordDictionary(keywords), ForkJoinPool.commonPool(),
+                    null, metrics).validate(paths);
+            if (timing) {
+                long startup = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+                err.println("startup to result: " + startup + " ms");
+                err.println("counts: " + metrics.getCounters());
+                err.println("phase nanos: " + metrics.getTimerTotalNanos());
+            }
+
+            if (json) {
+                printJson(report, out);
+            } else {
+                printText(report, out);
+            }
+            if (!report.getFailures().isEmpty()) {
+                return 2;
+            }
+            return report.getFilesWithInvalidIdentifiers().isEmpty() ? 0 : 1;
+        } catch (IOException e) {
+            err.println("error: " + e);
+            return 2;
+        }
+    }
+
+    /**
+     * Internal method to print a usage error.
+     */
+    private static int usage(PrintStream err, String message) {
+        err.println("error: " + message);
+        err.println("usage: ValidatorCli [--keywords file | --profiles names | --snapshot file] [--format text|json]"
+                + " [--timing] path...");
+        err.println("       ValidatorCli [--keywords file | --profiles names] --write-snapshot file");
+        return 2;
+    }
+
+    /**
+     * Internal method to print the invalid identifiers of each file and a summary line.
+     */
+    private static void printText(BatchReport report, PrintStream out) {
+        for (Map.Entry<Path, ValidationResult> entry : report.getResults().entrySet()) {
+            Map<String, List<Integer>> invalid = new TreeMap<>(entry.getValue().getInvalidIdentifiers());
+            if (invalid.isEmpty()) {
+                continue;
+            }
+            out.println(entry.getKey() + ": " + invalid.size() + " invalid identifiers");
+            invalid.forEach((word, lines) -> out.println("  " + word + " on lines " + lines));
+        }
+        report.getFailures().forEach((path, e) -> out.println(path + ": could not be validated: " + e));
+        out.println(report.getFileCount() + " files, " + report.getFilesWithInvalidIdentifiers().size()
+                + " with invalid identifiers, " + report.getFailures().size() + " failed");
+    }
+
+    /**
+     * Internal method to print every file's valid and invalid identifiers as one JSON object.
+     */
+    private static void printJson(BatchReport report, PrintStream out) {
+        StringBuilder json = new StringBuilder("{\"files\":[");
+        String separator = "";
+        for (Map.Entry<Path, ValidationResult> entry : report.getResults().entrySet()) {
+            json.append(separator).append("{\"path\":");
+            appendString(json, entry.getKey().toString());
+            json.append(",\"valid\":{");
+            String itemSeparator = "";
+            for (Map.Entry<String, Integer> valid : new TreeMap<>(entry.getValue().getValidIdentifiers()).entrySet()) {
+                json.append(itemSeparator);
+                appendString(json, valid.getKey());
+                json.append(':').append(valid.getValue());
+                itemSeparator = ",";
+            }
+            json.append("},\"invalid\":{");
+            itemSeparator = "";
+            for (Map.Entry<String, List<Integer>> invalid
+                    : new TreeMap<>(entry.getValue().getInvalidIdentifiers()).entrySet()) {
+                json.append(itemSeparator);
+                appendString(json, invalid.getKey());
+                json.append(':').append(invalid.getValue().toString().replace(" ", ""));
+                itemSeparator = ",";
+            }
+            json.append("}}");
+            separator = ",";
+        }
+        json.append("],\"failures\":{");
+        separator = "";
+        for (Map.Entry<Path, Exception> failure : report.getFailures().entrySet()) {
+            json.append(separator);
+            appendString(json, failure.getKey().toString());
+            json.append(':');
+            appendString(json, failure.getValue().toString());
+            separator = ",";
+        }
+        out.println(json.append("}}"));
+    }
+
+    /**
+     * Internal method to append a JSON string literal.
+     */
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                json.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                json.append(String.format("\\u%04x", (int) ch));
+            } else {
+                json.append(ch);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,71 @@
+package cmsc256;
+
+/**
+ * Receives counts and timings from the validator.
+ * Counters are reported once per scanned range rather than once per token,
+ * so an enabled registry costs a few calls per file. NOOP ignores everything
+ * and is used when no registry is set.
+ */
+public interface ValidatorMetrics {
+
+    /**
+     * Things counted while validating.
+     */
+    enum Counter {
+        // bytes of Java source read
+        BYTES,
+        // lines of Java source scanned
+        LINES,
+        // tokens produced by the lexer
+        TOKENS,
+        // tokens looked up in the keyword matcher
+        KEYWORD_LOOKUPS,
+        // tokens that were keywords
+        RESERVED,
+        // occurrences of valid identifiers
+        VALID,
+        // occurrences of invalid identifiers
+        INVALID
+    }
+
+    /**
+     * Phases timed while validating.
+     * Lexing and classification run fused in one pass, so they share SCAN.
+     */
+    enum Timer {
+        // loading the keyword set for a validation or traversal
+        KEYWORD_LOAD,
+        // building a traversal string
+        TRAVERSAL,
+        // reading or mapping the Java file
+        FILE_READ,
+        // lexing and classifying the tokens
+        SCAN,
+        // building the identifier maps from the scan tables
+        RESULT_BUILD
+    }
+
+    ValidatorMetrics NOOP = new ValidatorMetrics() {
+        @Override
+        public void add(Counter counter, long amount) {
+        }
+
+        @Override
+        public void time(Timer timer, long nanos) {
+        }
+    };
+
+    /**
+     * Add to a counter.
+     * @param counter the counter.
+     * @param amount the amount to add.
+     */
+    void add(Counter counter, long amount);
+
+    /**
+     * Record one run of a timed phase.
+     * @param timer the phase.
+     * @param nanos how long it took.
+     */
+    void time(Timer timer, long nanos);
+}
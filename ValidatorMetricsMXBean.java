@@ -0,0 +1,34 @@
+package cmsc256;
+
+import java.util.Map;
+
+/**
+ * JMX view of a CountingMetrics registry.
+ */
+public interface ValidatorMetricsMXBean {
+
+    /**
+     * @return each counter's name and value.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return each timer's name and the number of times it ran.
+     */
+    Map<String, Long> getTimerCounts();
+
+    /**
+     * @return each timer's name and its total time in nanoseconds.
+     */
+    Map<String, Long> getTimerTotalNanos();
+
+    /**
+     * @return each timer's name and its longest time in nanoseconds.
+     */
+    Map<String, Long> getTimerMaxNanos();
+
+    /**
+     * Set every counter and timer back to zero.
+     */
+    void reset();
+}
@@ -19,11 +19,15 @@ package cmsc256;
  *
  ***************/
 
-import cmsc256.AVLTree.AVLNode;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.Scanner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class VariableValidator implements ProgramParserInterface {
 
@@ -31,6 +35,10 @@ public class VariableValidator implements ProgramParserInterface {
     private File javaFileName;
     private File keywordFileName;
     private AVLTree<String> keywordTree;
+    private KeywordMatcher keywordMatcher;
+    private KeywordDictionary keywordDictionary;
+    private ResultCache resultCache;
+    private ValidatorMetrics metrics = ValidatorMetrics.NOOP;
 
 
     // Parameterless constructor
@@ -48,6 +56,12 @@ public class VariableValidator implements ProgramParserInterface {
         setKeywordFile(keywordFileName);
     }
 
+    // Constructor validating against a dictionary that may be updated while in use
+    public VariableValidator(KeywordDictionary keywordDictionary, String javaFileName) {
+        setKeywordDictionary(keywordDictionary);
+        setJavaFile(javaFileName);
+    }
+
     // Getter for Java file name
     @Override
     public String getJavaFileName() {
@@ -90,313 +104,190 @@ public class VariableValidator implements ProgramParserInterface {
         this.keywordFileName = file;
     }
 
+    // Setter for a keyword dictionary used instead of the keyword file
+    public void setKeywordDictionary(KeywordDictionary keywordDictionary) {
+        if (keywordDictionary == null) {
+            throw new IllegalArgumentException("keyword dictionary cannot be null");
+        }
+        this.keywordDictionary = keywordDictionary;
+    }
+
+    // Setter for an on-disk cache of results, or null to always scan the file
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    // Setter for the registry receiving counts and timings, or null to stop reporting them
+    public void setMetrics(ValidatorMetrics metrics) {
+        this.metrics = metrics == null ? ValidatorMetrics.NOOP : metrics;
+    }
+
     // Method to create keyword tree from file
+    // Returns a copy, so changing it cannot change the keywords shared with other validators.
     @Override
     public AVLTree<String> createKeywordTree() throws FileNotFoundException {
-        // Check if keyword file exists
-        if (!keywordFileName.exists()) {
-            throw new FileNotFoundException();
-        }
-        // Initialize keywordTree as new AVL tree
-        keywordTree = new AVLTree<>();
-        // Read keyword file and insert keywords into tree
-        try (Scanner in = new Scanner(keywordFileName)) {
-            //while file still has a next line
-            while (in.hasNextLine()) {
-                //Initialize a string as next line
-                String line = in.nextLine().trim();
-                // insert line without spaces into the AVL tree
-                keywordTree.insert(line);
-            }
-        }
-        return keywordTree;
+        loadKeywords();
+        return keywordTree.copy();
+    }
+
+    // Loads the shared keyword tree and matcher, which are only read here
+    // They come from the shared KeywordCache, so they are only rebuilt when the file changes.
+    // With a keyword dictionary, they are its current snapshot instead.
+    private void loadKeywords() throws FileNotFoundException {
+        long start = System.nanoTime();
+        KeywordSet keywords = keywordDictionary != null ? keywordDictionary.snapshot()
+                : KeywordCache.get(keywordFileName);
+        keywordTree = keywords.tree();
+        keywordMatcher = keywords.getMatcher();
+        metrics.time(ValidatorMetrics.Timer.KEYWORD_LOAD, System.nanoTime() - start);
     }
 
     // Method to perform inorder traversal of keyword tree
     @Override
     public String getInorderTraversal() throws FileNotFoundException {
         if (keywordTree == null) {
-            createKeywordTree();
+            loadKeywords();
         }
-        return getInorderTraversal(keywordTree.getRoot());
-    }
-
-    // Helper method for inorder traversal
-    private String getInorderTraversal(AVLNode node) {
-        if (node == null) return "";
-
-        // Traverse left subtree
-        String traversal = getInorderTraversal(node.getLeft());
-        // Add the current node
-        traversal += node.getElement() + " ";
-        // Traverse right subtree
-        traversal += getInorderTraversal(node.getRight());
-
-        return traversal;
+        long start = System.nanoTime();
+        StringBuilder traversal = new StringBuilder();
+        // Add each node in sorted order
+        keywordTree.inorder(element -> traversal.append(element).append(' '));
+        metrics.time(ValidatorMetrics.Timer.TRAVERSAL, System.nanoTime() - start);
+        return traversal.toString();
     }
 
     // Method to perform preorder traversal of keyword tree
     @Override
     public String getPreorderTraversal() throws FileNotFoundException {
         if (keywordTree == null) {
-            createKeywordTree();
+            loadKeywords();
         }
-        return getPreorderTraversal(keywordTree.getRoot());
-    }
-
-    // Helper method for preorder traversal
-    private String getPreorderTraversal(AVLNode node) {
-        if (node == null) return "";
-
-        // Add the current node
-        String traversal = node.getElement() + " ";
-        // Traverse left subtree
-        traversal += getPreorderTraversal(node.getLeft());
-        // Traverse right subtree
-        traversal += getPreorderTraversal(node.getRight());
-        return traversal;
+        long start = System.nanoTime();
+        StringBuilder traversal = new StringBuilder();
+        // Add each node before its left and right subtrees
+        keywordTree.preorder(element -> traversal.append(element).append(' '));
+        metrics.time(ValidatorMetrics.Timer.TRAVERSAL, System.nanoTime() - start);
+        return traversal.toString();
     }
 
     // Method to perform postorder traversal of keyword tree
     @Override
     public String getPostorderTraversal() throws FileNotFoundException {
         if (keywordTree == null) {
-            createKeywordTree();
+            loadKeywords();
         }
-        return getPostorderTraversal(keywordTree.getRoot());
+        long start = System.nanoTime();
+        StringBuilder traversal = new StringBuilder();
+        // Add each node after its left and right subtrees
+        keywordTree.postorder(element -> traversal.append(element).append(' '));
+        metrics.time(ValidatorMetrics.Timer.TRAVERSAL, System.nanoTime() - start);
+        return traversal.toString();
     }
 
-    // Helper method for postorder traversal
-    private String getPostorderTraversal(AVLNode node) {
-        if (node == null) return "";
-
-        // Traverse left subtree
-        String traversal = getPostorderTraversal(node.getLeft());
-        // Traverse right subtree
-        traversal += getPostorderTraversal(node.getRight());
-        // Add the current node
-        traversal += node.getElement() + " ";
-        return traversal;
+    public Map<String, Integer> getValidJavaIdentifiers() throws FileNotFoundException {
+        ValidationResult result = analyze();
+        long start = System.nanoTime();
+        Map<String, Integer> validId = result.getValidIdentifiers();
+        metrics.time(ValidatorMetrics.Timer.RESULT_BUILD, System.nanoTime() - start);
+        return validId; // return map of Valid java Identifiers
     }
 
-    public Map<String, Integer> getValidJavaIdentifiers() throws FileNotFoundException {
-        Map<String, Integer> validId = new HashMap<>();
-        //create Keyword tree
+    public Map<String, List<Integer>> getInvalidJavaIdentifiers() {
         try {
-            createKeywordTree();
+            ValidationResult result = analyze();
+            long start = System.nanoTime();
+            Map<String, List<Integer>> invalidId = result.getInvalidIdentifiers();
+            metrics.time(ValidatorMetrics.Timer.RESULT_BUILD, System.nanoTime() - start);
+            return invalidId; // return map of invalid java identifiers
         } catch (FileNotFoundException e) {
             throw new RuntimeException(e);
         }
+    }
+
+    // Scans the Java file once and collects both valid and invalid identifiers
+    @Override
+    public ValidationResult analyze() throws FileNotFoundException {
+        //load the Keyword tree, reusing the cached one if the file is unchanged
+        loadKeywords();
 
         // Check if javaFile exists
         if (!javaFileName.exists()) {
             throw new FileNotFoundException();
         }
-        // Scanner to read the file
-        Scanner input = new Scanner(javaFileName);
-        int lineNumber = 0;
-        // Iterates over each line in the file
-        while (input.hasNextLine()) {
-            lineNumber++;
-            String line = input.nextLine().trim();
-
-            //Skips lines containing comments
-            if (line.contains("/*") || line.contains("//")){
-                while (input.hasNextLine()) {
-                    if (line.contains("*/")) { //skips multi-line comments
-                        line = input.nextLine().trim();
-                        lineNumber++;
-                        break;
-                    } else if (line.contains("//")){ //skips single line comments
-                        int beginIndex = line.indexOf("//");
-                        String subLine = line.substring(beginIndex);
-                        line = line.replace(subLine,"");
-                        break;
-                    }else{ //Skips lines inside the multi line comments
-                        line = input.nextLine().trim();
-                        lineNumber++;
-                    }
-                }
-            }
-
-            line = removeStringsAndDelimiters(line); //removes delimiters and strings from the line
-            if (!line.isEmpty()) {
-                String[] wordList = line.split(" "); // split the words in the line into an array
-                for (String word : wordList) {
-                    // check if token is a valid identifier, not a reserved word, and is not empty
-                    if (isValidToken(word) && isValidIdentifier(word) && !word.isEmpty()) {
-                        // Add the word to the map or update its occurrence count
-                        validId.put(word, validId.getOrDefault(word, 0) + 1);
-                    }
-                }
-            }
-        }
-        return validId; // return map of Valid java Identifiers
-    }
-
-    public Map<String, List<Integer>> getInvalidJavaIdentifiers() {
-        Map<String, List<Integer>> invalidId = new HashMap<>();
-        //create Keyword tree
         try {
-            createKeywordTree();
-        } catch (FileNotFoundException e) {
+            long start = System.nanoTime();
+            ByteBuffer content = SourceFile.readBytes(javaFileName);
+            metrics.time(ValidatorMetrics.Timer.FILE_READ, System.nanoTime() - start);
+            metrics.add(ValidatorMetrics.Counter.BYTES, content.limit());
+            // Unchanged files are answered from the result cache without scanning
+            if (resultCache != null) {
+                return resultCache.analyze(content, keywordMatcher, this::scan);
+            }
+            return scan(SourceFile.decode(content));
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+    }
 
-        // Scanner to read the file
-        int lineNumber = 0;
-        Scanner input;
-        try {
-            input = new Scanner(javaFileName);
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException(e);
+    // Scans the source text with the current keywords
+    private ValidationResult scan(CharSequence source) {
+        // Large files are split into chunks scanned on all cores
+        if (source.length() >= SourceAnalyzer.PARALLEL_THRESHOLD) {
+            return SourceAnalyzer.analyzeParallel(source, keywordMatcher, ForkJoinPool.commonPool(),
+                    Runtime.getRuntime().availableProcessors(), metrics);
         }
+        return SourceAnalyzer.analyze(source, keywordMatcher, metrics);
+    }
 
-        // Iterate over each line in the file
-        while (input.hasNextLine()) {
-            lineNumber++;
-            String line = input.nextLine().trim();
-
-            //Skips lines containing comments
-            if (line.contains("/*") || line.contains("//")){
-                while (input.hasNextLine()) {
-                    if (line.contains("*/")) { //skips multi-line comments
-                        line = input.nextLine().trim();
-                        lineNumber++;
-                        break;
-                    } else if (line.contains("//")){ //skips single line comments
-                        int beginIndex = line.indexOf("//");
-                        String subLine = line.substring(beginIndex);
-                        line = line.replace(subLine,"");
-                        break;
-                    }else{ //Skips lines inside the multi line comments
-                        line = input.nextLine().trim();
-                        lineNumber++;
-                    }
-                }
-            }
 
-            line = removeStringsAndDelimiters(line); //removes strings and delimiters from the line
-            if (!line.isEmpty()) {
-                String[] wordList = line.split(" "); // split the words in the line into an array
-                for (String word : wordList) {
-                    if (!word.isEmpty()) { // checks if the token is empty
-                        if (!isValidToken(word)) { //checks if token is part of the reserved words KeywordTree
-                        continue;
-                        // checks if token is not a valid Identifier and doesn't consist of only numbers
-                        } else if (!isValidIdentifier(word) && !isNumber(word)){
-                            if (!invalidId.containsKey(word)) { // Check if the word is not already in the map
-                                invalidId.put(word, new ArrayList<>()); //add word to map with an empty list
-                            }
-                            // Else retrieve the list of line numbers for the current word
-                            List<Integer> lineNumbers = invalidId.get(word);
-                            //checks if current line number is not already in the list
-                            if (!lineNumbers.contains(lineNumber)) {
-                                lineNumbers.add(lineNumber); //add current line number to the list
-                                invalidId.put(word, lineNumbers); // Update map with new list of line numbers
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return invalidId; // return map of invalid java identifiers
+    // Passes each token of the Java file to the listener as soon as it is lexed
+    // Returns false if the listener stopped the scan early
+    public boolean forEachIdentifier(IdentifierListener listener) throws FileNotFoundException {
+        return SourceAnalyzer.forEachIdentifier(readJavaFile(), keywordMatcher, listener);
     }
 
+    // Returns a lazy stream of the tokens of the Java file
+    public Stream<IdentifierOccurrence> identifiers() throws FileNotFoundException {
+        return SourceAnalyzer.identifiers(readJavaFile(), keywordMatcher);
+    }
 
-    public boolean isValidToken(String word) {
-        // Check if the token is a reserved word in KeywordTree
-        if (keywordTree.find(word) != null) {
-            return false; //false if it exists in the tree
-        }
-        return true; // true if it does not exist in the tree
+    // Returns a publisher of the tokens of the Java file, delivering them on the executor
+    public Flow.Publisher<IdentifierOccurrence> publishIdentifiers(Executor executor) throws FileNotFoundException {
+        return new IdentifierPublisher(readJavaFile(), keywordMatcher, executor);
     }
 
-    public boolean isValidIdentifier(String word) {
-        // Check if the token is not empty
-        if (word.isEmpty()) {
-            return false;
+    // Loads the keywords and the Java file for the streaming methods
+    private CharSequence readJavaFile() throws FileNotFoundException {
+        loadKeywords();
+        if (!javaFileName.exists()) {
+            throw new FileNotFoundException();
         }
-        // Check if the first character is a valid identifier start character
-        char firstChar = word.charAt(0);
-        if (!(Character.isLetter(firstChar) || firstChar == '_' || firstChar == '$')) {
-            return false;
+        try {
+            return SourceFile.read(javaFileName);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
+    }
 
-        for (int i = 1; i < word.length(); i++) {
-            char ch = word.charAt(i);
-            // Checks if the characters in the token are not a valid identifier character
-            if (!(Character.isLetterOrDigit(ch) || ch == '_' || ch == '$')) {
-                return false;
-            }
-        }
-        return true;
+    // Opens an incremental session over the Java file for re-validating edits
+    public IncrementalSession openSession() throws FileNotFoundException {
+        return new IncrementalSession(readJavaFile(), keywordMatcher);
     }
 
-    public boolean isNumber (String input){ // checks if the token is only a number
-        int count = 0; // initialized for the count of letters in the token
-        for (int i = 0; i < input.length(); i++) {
-            char ch = input.charAt(i);
-            // If the character is a letter
-            if (Character.isLetter(ch)) {
-                count++; // increment count
-            }
-        }
-        //Verifies if the token consists of at least 1 letter
-        if (count > 0) {
-            return false;
+    public boolean isValidToken(String word) {
+        // Check if the token is a reserved word, including operators kept only in the KeywordTree
+        if (KeywordSet.contains(keywordMatcher, keywordTree, word)) {
+            return false; //false if it is a keyword
         }
-        return true;
+        return true; // true if it is not a keyword
     }
 
-    private String removeStringsAndDelimiters(String input) { // Removes strings and delimiters in a line
-        String placeHolder = "";
-        boolean insideStringLiteral = false; // indicates if inside a string or not
-
-        if (input.contains("\"")){ // checks if line contains a string literal
-            for (int i = 0; i < input.length(); i++) { //parses through the line by each character
-                char ch = input.charAt(i);
-
-                if (insideStringLiteral) { //if inside of string
-                    if (ch == '\"') { //if second quotation is reached
-                        insideStringLiteral = false; // false to exit the if statement
-                    }
-                    continue; // Skip characters inside string
-                }
-                // Check for start of first quotation
-                if (ch == '\"') {
-                    insideStringLiteral = true;
-                    placeHolder += ch;
-                    continue;
-                }
-
-                placeHolder += ch; // add the characters to placeHolder
-            }
-            input = placeHolder; //Update input to reflect new line after String literals are removed
-        }
-        //return the line after removing delimiters and math operators
-        return input
-                // Remove delimiters
-                .replace("\"", "")
-                .replace("{", " ")
-                .replace("}", " ")
-                .replace("(", " ")
-                .replace(")", " ")
-                .replace("[", " ")
-                .replace("]", " ")
-                .replace(",", " ")
-                .replace(".", " ")
-                .replace(";", " ")
-                // Remove math operators
-                .replace("+", " ")
-                .replace("-", " ")
-                .replace("*", " ")
-                .replace("/", " ")
-                .replace("%", " ")
-                .replace("=", " ")
-                .replace("<", " ")
-                .replace(">", " ");
+    public boolean isValidIdentifier(String word) {
+        return SourceAnalyzer.isValidIdentifier(word);
+    }
 
+    public boolean isNumber (String input){ // checks if the token is only a number
+        return SourceAnalyzer.isNumber(input);
     }
 
 }